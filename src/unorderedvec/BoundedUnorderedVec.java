@@ -0,0 +1,113 @@
+package unorderedvec;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+public final class BoundedUnorderedVec<E> implements Iterable<E> {
+    public enum Eviction { RANDOM, OLDEST, RESERVOIR }
+
+    private final int maxSize;
+    private final Eviction eviction;
+    private final RandomGenerator random;
+    private E[] elements;
+    private int size;
+    private int oldest;
+    private long seen;
+
+    @SuppressWarnings("unchecked")
+    public BoundedUnorderedVec(int maxSize, Eviction eviction, RandomGenerator random){
+        if(maxSize <= 0){
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.maxSize = maxSize;
+        this.eviction = Objects.requireNonNull(eviction);
+        this.random = Objects.requireNonNull(random);
+        elements = (E[]) new Object[Math.min(maxSize, 16)];
+    }
+
+    public BoundedUnorderedVec(int maxSize, Eviction eviction){
+        this(maxSize, eviction, new SplittableRandom());
+    }
+
+    // returns the element that did not make it in the vec (the evicted one or the rejected one) or null
+    public E add(E element){
+        Objects.requireNonNull(element);
+        seen++;
+        if(size < maxSize){
+            if(size == elements.length){
+                elements = Arrays.copyOf(elements, (int) Math.min(maxSize, elements.length * 2L));
+            }
+            elements[size] = element;
+            size++;
+            return null;
+        }
+        return switch (eviction) {
+            case RANDOM -> replace(random.nextInt(size), element);
+            case OLDEST -> {
+                // slots are overwritten in ring order, this is exact until a remove() swaps the tail in
+                var evicted = replace(oldest, element);
+                oldest = (oldest + 1) % size;
+                yield evicted;
+            }
+            case RESERVOIR -> {
+                var index = random.nextLong(seen);
+                yield index < size ? replace((int) index, element) : element;
+            }
+        };
+    }
+
+    private E replace(int index, E element){
+        var evicted = elements[index];
+        elements[index] = element;
+        return evicted;
+    }
+
+    public boolean remove(Object value){
+        Objects.requireNonNull(value);
+        for(var i = 0; i < size; i++){
+            if(elements[i].equals(value)){
+                var last = size - 1;
+                elements[i] = elements[last];
+                elements[last] = null;
+                size = last;
+                if(oldest >= size){
+                    oldest = 0;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int maxSize(){
+        return maxSize;
+    }
+
+    @Override
+    public Iterator<E> iterator(){
+        return new Iterator<>() {
+            int index;
+
+            @Override
+            public boolean hasNext(){
+                return index < size;
+            }
+
+            @Override
+            public E next(){
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                return elements[index++];
+            }
+        };
+    }
+}
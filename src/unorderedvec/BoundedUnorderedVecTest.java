@@ -0,0 +1,124 @@
+package unorderedvec;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class BoundedUnorderedVecTest {
+  private static Set<Integer> toSet(BoundedUnorderedVec<Integer> vec) {
+    var set = new HashSet<Integer>();
+    vec.forEach(set::add);
+    return set;
+  }
+
+  @Test
+  public void addBelowMaxSize() {
+    var vec = new BoundedUnorderedVec<String>(3, BoundedUnorderedVec.Eviction.RANDOM);
+    assertNull(vec.add("A"));
+    assertNull(vec.add("B"));
+    assertEquals(2, vec.size());
+    assertEquals(3, vec.maxSize());
+  }
+
+  @Test
+  public void randomEvictionKeepsMaxSize() {
+    var vec = new BoundedUnorderedVec<Integer>(100, BoundedUnorderedVec.Eviction.RANDOM, new SplittableRandom(0));
+    var evicted = new HashSet<Integer>();
+    for (var i = 0; i < 10_000; i++) {
+      var element = vec.add(i);
+      if (element != null) {
+        evicted.add(element);
+      }
+    }
+
+    assertEquals(100, vec.size());
+    assertEquals(9_900, evicted.size());
+    var kept = toSet(vec);
+    assertTrue(kept.contains(9_999));
+    kept.addAll(evicted);
+    assertEquals(10_000, kept.size());
+  }
+
+  @Test
+  public void oldestEvictionKeepsTheMostRecent() {
+    var vec = new BoundedUnorderedVec<Integer>(64, BoundedUnorderedVec.Eviction.OLDEST);
+    for (var i = 0; i < 1_000; i++) {
+      var evicted = vec.add(i);
+      assertEquals(i < 64 ? null : i - 64, evicted);
+    }
+
+    assertEquals(IntStream.range(936, 1_000).boxed().collect(Collectors.toSet()), toSet(vec));
+  }
+
+  @Test
+  public void oldestEvictionAfterRemove() {
+    var vec = new BoundedUnorderedVec<Integer>(4, BoundedUnorderedVec.Eviction.OLDEST);
+    IntStream.range(0, 6).forEach(vec::add);
+    assertTrue(vec.remove(5));
+    vec.add(6);
+    vec.add(7);
+
+    assertEquals(4, vec.size());
+    assertTrue(toSet(vec).containsAll(Set.of(6, 7)));
+  }
+
+  @Test
+  public void reservoirIsUniform() {
+    var random = new SplittableRandom(42);
+    var counts = new int[10];
+    for (var trial = 0; trial < 10_000; trial++) {
+      var vec = new BoundedUnorderedVec<Integer>(1, BoundedUnorderedVec.Eviction.RESERVOIR, random);
+      IntStream.range(0, 10).forEach(vec::add);
+      counts[vec.iterator().next()]++;
+    }
+
+    for (var count : counts) {
+      assertTrue(count > 850 && count < 1_150, "" + count);
+    }
+  }
+
+  @Test
+  public void reservoirReturnsRejectedOrEvicted() {
+    var vec = new BoundedUnorderedVec<Integer>(10, BoundedUnorderedVec.Eviction.RESERVOIR, new SplittableRandom(1));
+    var out = new HashSet<Integer>();
+    for (var i = 0; i < 1_000; i++) {
+      var element = vec.add(i);
+      if (element != null) {
+        out.add(element);
+      }
+    }
+
+    assertEquals(10, vec.size());
+    assertEquals(990, out.size());
+    var all = toSet(vec);
+    all.addAll(out);
+    assertEquals(1_000, all.size());
+  }
+
+  @Test
+  public void remove() {
+    var vec = new BoundedUnorderedVec<String>(2, BoundedUnorderedVec.Eviction.RANDOM);
+    vec.add("A");
+    vec.add("B");
+
+    assertTrue(vec.remove("A"));
+    assertFalse(vec.remove("C"));
+    assertEquals(1, vec.size());
+  }
+
+  @Test
+  public void preconditions() {
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> new BoundedUnorderedVec<>(0, BoundedUnorderedVec.Eviction.RANDOM)),
+        () -> assertThrows(NullPointerException.class, () -> new BoundedUnorderedVec<>(1, null)),
+        () -> assertThrows(NullPointerException.class, () -> new BoundedUnorderedVec<>(1, BoundedUnorderedVec.Eviction.RANDOM, null)),
+        () -> assertThrows(NullPointerException.class, () -> new BoundedUnorderedVec<>(1, BoundedUnorderedVec.Eviction.OLDEST).add(null))
+    );
+  }
+}
@@ -0,0 +1,52 @@
+package unorderedvec;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+final class ChangeLog<E> {
+    private final Object[] elements;
+    private final boolean[] additions;
+    private final long start;
+    private long latest;
+
+    ChangeLog(int capacity, long version){
+        if(capacity <= 0){
+            throw new IllegalArgumentException("capacity <= 0");
+        }
+        elements = new Object[capacity];
+        additions = new boolean[capacity];
+        start = version;
+        latest = version;
+    }
+
+    void record(long version, E element, boolean addition){
+        var index = (int) (version % elements.length);
+        elements[index] = element;
+        additions[index] = addition;
+        latest = version;
+    }
+
+    // null if the changes since version are no longer in the log
+    @SuppressWarnings("unchecked")
+    UnorderedVec.Changes<E> changesSince(long version){
+        if(version < start || version < latest - elements.length){
+            return null;
+        }
+        var counts = new HashMap<E, Integer>();
+        for(var v = version + 1; v <= latest; v++){
+            var index = (int) (v % elements.length);
+            counts.merge((E) elements[index], additions[index] ? 1 : -1, Integer::sum);
+        }
+        var added = new ArrayList<E>();
+        var removed = new ArrayList<E>();
+        counts.forEach((element, count) -> {
+            for(var i = 0; i < count; i++){
+                added.add(element);
+            }
+            for(var i = 0; i > count; i--){
+                removed.add(element);
+            }
+        });
+        return new UnorderedVec.Changes<>(latest, added, removed, false);
+    }
+}
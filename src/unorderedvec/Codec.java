@@ -0,0 +1,31 @@
+package unorderedvec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.function.Function;
+
+public interface Codec<E> {
+    byte[] encode(E element);
+
+    E decode(byte[] bytes);
+
+    static <E> Codec<E> of(Function<? super E, byte[]> encoder, Function<? super byte[], ? extends E> decoder){
+        Objects.requireNonNull(encoder);
+        Objects.requireNonNull(decoder);
+        return new Codec<>() {
+            @Override
+            public byte[] encode(E element){
+                return encoder.apply(element);
+            }
+
+            @Override
+            public E decode(byte[] bytes){
+                return decoder.apply(bytes);
+            }
+        };
+    }
+
+    static Codec<String> utf8(){
+        return of(value -> value.getBytes(StandardCharsets.UTF_8), bytes -> new String(bytes, StandardCharsets.UTF_8));
+    }
+}
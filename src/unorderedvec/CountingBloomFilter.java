@@ -0,0 +1,87 @@
+package unorderedvec;
+
+// one saturating 8-bit counter per slot, a counter stuck at 255 is never decremented again
+final class CountingBloomFilter {
+    private final byte[] counters;
+    private final int hashes;
+    private final int capacity;
+    private final double falsePositiveRate;
+    private int count;
+    long lookups;
+    long filteredMisses;
+    long falsePositives;
+
+    CountingBloomFilter(int capacity, double falsePositiveRate){
+        if(!(falsePositiveRate > 0 && falsePositiveRate < 1)){
+            throw new IllegalArgumentException("falsePositiveRate not in ]0, 1[");
+        }
+        this.capacity = Math.max(capacity, 64);
+        this.falsePositiveRate = falsePositiveRate;
+        var slots = Math.ceil(-this.capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        counters = new byte[(int) Math.min(Integer.MAX_VALUE - 16, slots)];
+        hashes = Math.max(1, (int) Math.round((double) counters.length / this.capacity * Math.log(2)));
+    }
+
+    int capacity(){
+        return capacity;
+    }
+
+    double falsePositiveRate(){
+        return falsePositiveRate;
+    }
+
+    boolean isFull(){
+        return count > capacity;
+    }
+
+    // the statistics survive a resize
+    void copyStatisticsFrom(CountingBloomFilter filter){
+        lookups = filter.lookups;
+        filteredMisses = filter.filteredMisses;
+        falsePositives = filter.falsePositives;
+    }
+
+    // double hashing, the i-th slot is h1 + i * h2
+    private static long mix(int hash){
+        var h = hash * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    void add(int hash){
+        var h = mix(hash);
+        var h1 = (int) h;
+        var h2 = (int) (h >>> 32) | 1;
+        for(var i = 0; i < hashes; i++){
+            var slot = Math.floorMod(h1 + i * h2, counters.length);
+            if(counters[slot] != (byte) 0xFF){
+                counters[slot]++;
+            }
+        }
+        count++;
+    }
+
+    void remove(int hash){
+        var h = mix(hash);
+        var h1 = (int) h;
+        var h2 = (int) (h >>> 32) | 1;
+        for(var i = 0; i < hashes; i++){
+            var slot = Math.floorMod(h1 + i * h2, counters.length);
+            if(counters[slot] != (byte) 0xFF){
+                counters[slot]--;
+            }
+        }
+        count--;
+    }
+
+    boolean mightContain(int hash){
+        var h = mix(hash);
+        var h1 = (int) h;
+        var h2 = (int) (h >>> 32) | 1;
+        for(var i = 0; i < hashes; i++){
+            if(counters[Math.floorMod(h1 + i * h2, counters.length)] == 0){
+                return false;
+            }
+        }
+        return true;
+    }
+}
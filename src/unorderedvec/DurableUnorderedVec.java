@@ -0,0 +1,296 @@
+package unorderedvec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+// an UnorderedVec whose mutations are appended to a log, the log is replayed on top of the last snapshot when reopened
+public final class DurableUnorderedVec<E> implements Iterable<E>, AutoCloseable {
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    // a record is: operation, length, crc of the encoded element, encoded element
+    private static final int RECORD_HEADER = 1 + Integer.BYTES + Integer.BYTES;
+
+    private final Path directory;
+    private final Codec<E> codec;
+    private final int groupCommit;
+    private final long maxLogBytes;
+    private final UnorderedVec<E> vec = new UnorderedVec<>();
+    private final FileChannel log;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer pending = ByteBuffer.allocate(4_096);
+    private int pendingCount;
+    private long logSize;
+    // the snapshot and the log share a generation, a log older than the snapshot has already been compacted
+    private long generation;
+    private boolean closed;
+    // a checkpoint renamed its snapshot but could not reset the log, appending to the old log would be lost on reopen
+    private boolean failed;
+    // forces the directory entries, replaced by the tests to inject failures
+    DirectorySync directorySync = DurableUnorderedVec::forceDirectory;
+
+    @FunctionalInterface
+    interface DirectorySync {
+        void force(Path directory) throws IOException;
+    }
+
+    public DurableUnorderedVec(Path directory, Codec<E> codec, int groupCommit, long maxLogBytes){
+        this.directory = Objects.requireNonNull(directory);
+        this.codec = Objects.requireNonNull(codec);
+        if(groupCommit <= 0){
+            throw new IllegalArgumentException("groupCommit <= 0");
+        }
+        if(maxLogBytes <= 0){
+            throw new IllegalArgumentException("maxLogBytes <= 0");
+        }
+        this.groupCommit = groupCommit;
+        this.maxLogBytes = maxLogBytes;
+        try {
+            Files.createDirectories(directory);
+            readSnapshot();
+            log = FileChannel.open(directory.resolve("log"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            replayLog();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public DurableUnorderedVec(Path directory, Codec<E> codec){
+        this(directory, codec, 64, 64L << 20);
+    }
+
+    private void readSnapshot() throws IOException {
+        var snapshot = directory.resolve("snapshot");
+        if(!Files.exists(snapshot)){
+            return;
+        }
+        try(var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))){
+            generation = input.readLong();
+            for(var count = input.readInt(); count > 0; count--){
+                var bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                vec.add(codec.decode(bytes));
+            }
+        }
+    }
+
+    // stops at the first torn or corrupted record, the log is truncated right before it
+    private void replayLog() throws IOException {
+        if(log.size() < Long.BYTES){
+            resetLog();
+            return;
+        }
+        var input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(log.position(0))));
+        if(input.readLong() != generation){
+            resetLog();
+            return;
+        }
+        var position = (long) Long.BYTES;
+        var end = log.size();
+        try {
+            while(position + RECORD_HEADER <= end){
+                var operation = input.readByte();
+                var length = input.readInt();
+                var checksum = input.readInt();
+                if(length < 0 || length > end - position - RECORD_HEADER){
+                    break;
+                }
+                var bytes = new byte[length];
+                input.readFully(bytes);
+                if((operation != ADD && operation != REMOVE) || checksum(operation, bytes) != checksum){
+                    break;
+                }
+                var element = codec.decode(bytes);
+                if(operation == ADD){
+                    vec.add(element);
+                } else {
+                    vec.remove(element);
+                }
+                position += RECORD_HEADER + bytes.length;
+            }
+        } catch (EOFException e) {
+            // torn record
+        }
+        log.truncate(position);
+        log.force(false);
+        logSize = position;
+    }
+
+    private void resetLog() throws IOException {
+        log.truncate(0);
+        var header = ByteBuffer.allocate(Long.BYTES).putLong(generation).flip();
+        while(header.hasRemaining()){
+            log.write(header, header.position());
+        }
+        log.force(false);
+        logSize = Long.BYTES;
+    }
+
+    private int checksum(byte operation, byte[] bytes){
+        crc.reset();
+        crc.update(operation);
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private void checkOpen(){
+        if(closed){
+            throw new IllegalStateException("closed");
+        }
+        if(failed){
+            throw new IllegalStateException("failed checkpoint, reopen the vec");
+        }
+    }
+
+    private static void forceDirectory(Path directory) throws IOException {
+        try(var channel = FileChannel.open(directory, StandardOpenOption.READ)){
+            channel.force(true);
+        }
+    }
+
+    public void add(E element){
+        Objects.requireNonNull(element);
+        checkOpen();
+        var bytes = codec.encode(element);
+        vec.add(element);
+        append(ADD, bytes);
+    }
+
+    // value is expected to be an E, it is encoded before the vec is mutated so a failing codec changes nothing
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object value){
+        Objects.requireNonNull(value);
+        checkOpen();
+        var bytes = codec.encode((E) value);
+        if(!vec.remove(value)){
+            return false;
+        }
+        append(REMOVE, bytes);
+        return true;
+    }
+
+    private void append(byte operation, byte[] bytes){
+        var length = RECORD_HEADER + bytes.length;
+        if(pending.remaining() < length){
+            var buffer = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + length));
+            pending = buffer.put(pending.flip());
+        }
+        pending.put(operation).putInt(bytes.length).putInt(checksum(operation, bytes)).put(bytes);
+        pendingCount++;
+        if(pendingCount >= groupCommit){
+            sync();
+        }
+    }
+
+    // group commit, the pending records are written and forced together
+    public void sync(){
+        checkOpen();
+        if(pendingCount == 0){
+            return;
+        }
+        pending.flip();
+        try {
+            while(pending.hasRemaining()){
+                log.write(pending, logSize + pending.position());
+            }
+            log.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        logSize += pending.limit();
+        pending.clear();
+        pendingCount = 0;
+        if(logSize > maxLogBytes){
+            checkpoint();
+        }
+    }
+
+    // the snapshot is written aside and renamed atomically, only then the log is truncated
+    public void checkpoint(){
+        sync();
+        var snapshot = directory.resolve("snapshot");
+        var temporary = directory.resolve("snapshot.tmp");
+        try {
+            try(var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+                var output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                output.writeLong(generation + 1);
+                output.writeInt(vec.size());
+                for(var element : vec){
+                    var bytes = codec.encode(element);
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                }
+                output.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // the snapshot is now the new generation, nothing can be appended before the log is reset
+        generation++;
+        try {
+            // best effort, the rename should be durable before the log is reset but some platforms can not open a directory
+            try {
+                directorySync.force(directory);
+            } catch (IOException e) {
+                // ignore
+            }
+            resetLog();
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e instanceof IOException ioException ? new UncheckedIOException(ioException) : (RuntimeException) e;
+        }
+    }
+
+    public int size(){
+        return vec.size();
+    }
+
+    // read only, a removal has to go through remove() to be logged
+    @Override
+    public Iterator<E> iterator(){
+        var iterator = vec.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext(){
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next(){
+                return iterator.next();
+            }
+        };
+    }
+
+    @Override
+    public void close(){
+        if(closed){
+            return;
+        }
+        if(!failed){
+            sync();
+        }
+        closed = true;
+        try {
+            log.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
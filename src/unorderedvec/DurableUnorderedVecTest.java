@@ -0,0 +1,260 @@
+package unorderedvec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class DurableUnorderedVecTest {
+  private static HashMap<String, Integer> countsOf(Iterable<String> iterable) {
+    var counts = new HashMap<String, Integer>();
+    iterable.forEach(value -> counts.merge(value, 1, Integer::sum));
+    return counts;
+  }
+
+  @Test
+  public void recoverFromLog(@TempDir Path directory) {
+    HashMap<String, Integer> expected;
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8())) {
+      IntStream.range(0, 100).forEach(i -> vec.add("v" + i % 10));
+      IntStream.range(0, 5).forEach(i -> assertTrue(vec.remove("v3")));
+      assertFalse(vec.remove("v42"));
+      expected = countsOf(vec);
+    }
+
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8())) {
+      assertEquals(95, vec.size());
+      assertEquals(expected, countsOf(vec));
+    }
+  }
+
+  @Test
+  public void groupCommit(@TempDir Path directory) {
+    var crashed = new DurableUnorderedVec<>(directory, Codec.utf8(), 10, 1L << 20);
+    IntStream.range(0, 25).forEach(i -> crashed.add("v" + i));
+
+    // the last 5 additions were never forced, as if the process died
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8(), 10, 1L << 20)) {
+      assertEquals(20, vec.size());
+    }
+  }
+
+  @Test
+  public void syncForcesPendingRecords(@TempDir Path directory) {
+    var crashed = new DurableUnorderedVec<>(directory, Codec.utf8(), 1_000, 1L << 20);
+    IntStream.range(0, 25).forEach(i -> crashed.add("v" + i));
+    crashed.sync();
+
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8())) {
+      assertEquals(25, vec.size());
+    }
+  }
+
+  @Test
+  public void checkpointTruncatesTheLog(@TempDir Path directory) throws IOException {
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8())) {
+      IntStream.range(0, 1_000).forEach(i -> vec.add("v" + i));
+      IntStream.range(0, 500).forEach(i -> vec.remove("v" + 2 * i));
+      vec.checkpoint();
+
+      assertEquals(Long.BYTES, Files.size(directory.resolve("log")));
+      vec.add("after");
+    }
+
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8())) {
+      var counts = countsOf(vec);
+      assertEquals(501, vec.size());
+      assertEquals(1, counts.get("after"));
+      assertEquals(1, counts.get("v1"));
+      assertNull(counts.get("v0"));
+    }
+  }
+
+  @Test
+  public void automaticCheckpoint(@TempDir Path directory) throws IOException {
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8(), 8, 1_024)) {
+      IntStream.range(0, 10_000).forEach(i -> vec.add("v" + i % 100));
+      IntStream.range(0, 5_000).forEach(i -> vec.remove("v" + i % 100));
+
+      assertTrue(Files.size(directory.resolve("log")) <= 1_024 + 8 * 64);
+      assertTrue(Files.exists(directory.resolve("snapshot")));
+    }
+
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8())) {
+      assertEquals(5_000, vec.size());
+      countsOf(vec).values().forEach(count -> assertEquals(50, count));
+    }
+  }
+
+  @Test
+  public void tornTailIsIgnored(@TempDir Path directory) throws IOException {
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8(), 1, 1L << 20)) {
+      IntStream.range(0, 10).forEach(i -> vec.add("v" + i));
+    }
+    var log = directory.resolve("log");
+    var size = Files.size(log);
+    Files.write(log, new byte[] { 1, 0, 0, 0, 42, 7 }, StandardOpenOption.APPEND);
+
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8(), 1, 1L << 20)) {
+      assertEquals(10, vec.size());
+      assertEquals(size, Files.size(log));
+      vec.add("v10");
+    }
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8())) {
+      assertEquals(11, vec.size());
+    }
+  }
+
+  @Test
+  public void corruptedRecordStopsTheReplay(@TempDir Path directory) throws IOException {
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8(), 1, 1L << 20)) {
+      IntStream.range(0, 10).forEach(i -> vec.add("v" + i));
+    }
+    var log = directory.resolve("log");
+    var bytes = Files.readAllBytes(log);
+    bytes[bytes.length - 1] ^= 1;
+    Files.write(log, bytes);
+
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8())) {
+      assertEquals(9, vec.size());
+    }
+  }
+
+  @Test
+  public void staleLogAfterCheckpointIsNotReplayed(@TempDir Path directory) throws IOException {
+    var log = directory.resolve("log");
+    var stale = directory.resolve("stale");
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8(), 1, 1L << 20)) {
+      IntStream.range(0, 10).forEach(i -> vec.add("v" + i));
+      Files.copy(log, stale);
+      vec.checkpoint();
+    }
+    // crash between the rename of the snapshot and the truncation of the log
+    Files.copy(stale, log, StandardCopyOption.REPLACE_EXISTING);
+
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8())) {
+      assertEquals(10, vec.size());
+    }
+  }
+
+  @Test
+  public void recoverAfterSnapshotRenamedAndLogReset(@TempDir Path directory, @TempDir Path copy) throws IOException {
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8(), 1, 1L << 20)) {
+      IntStream.range(0, 10).forEach(i -> vec.add("v" + i));
+      vec.checkpoint();
+      // crash right after the checkpoint, before any new record
+      Files.copy(directory.resolve("snapshot"), copy.resolve("snapshot"));
+      Files.copy(directory.resolve("log"), copy.resolve("log"));
+    }
+
+    try (var vec = new DurableUnorderedVec<>(copy, Codec.utf8())) {
+      assertEquals(10, vec.size());
+      assertEquals(Long.BYTES, Files.size(copy.resolve("log")));
+      vec.add("v10");
+    }
+    try (var vec = new DurableUnorderedVec<>(copy, Codec.utf8())) {
+      assertEquals(11, vec.size());
+    }
+  }
+
+  @Test
+  public void directorySyncFailureIsIgnored(@TempDir Path directory) {
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8(), 1, 1L << 20)) {
+      vec.directorySync = __ -> {
+        throw new AccessDeniedException(directory.toString());
+      };
+      IntStream.range(0, 10).forEach(i -> vec.add("v" + i));
+      vec.checkpoint();
+      IntStream.range(10, 20).forEach(i -> vec.add("v" + i));
+      vec.checkpoint();
+      vec.add("v20");
+    }
+
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8())) {
+      assertEquals(21, vec.size());
+    }
+  }
+
+  @Test
+  public void failureAfterTheRenameLosesNothing(@TempDir Path directory) {
+    var vec = new DurableUnorderedVec<>(directory, Codec.utf8(), 1, 1L << 20);
+    IntStream.range(0, 10).forEach(i -> vec.add("v" + i));
+    vec.directorySync = __ -> {
+      throw new IllegalStateException("injected");
+    };
+
+    assertThrows(IllegalStateException.class, vec::checkpoint);
+    assertThrows(IllegalStateException.class, () -> vec.add("lost"));
+    assertThrows(IllegalStateException.class, () -> vec.remove("v0"));
+    assertEquals(10, vec.size());
+    vec.close();
+
+    try (var reopened = new DurableUnorderedVec<>(directory, Codec.utf8())) {
+      assertEquals(10, reopened.size());
+      reopened.add("v10");
+    }
+    try (var reopened = new DurableUnorderedVec<>(directory, Codec.utf8())) {
+      assertEquals(11, reopened.size());
+    }
+  }
+
+  @Test
+  public void failingEncodeDoesNotRemove(@TempDir Path directory) {
+    var failing = new AtomicBoolean();
+    var codec = Codec.<String>of(value -> {
+      if (failing.get()) {
+        throw new IllegalStateException();
+      }
+      return value.getBytes(StandardCharsets.UTF_8);
+    }, bytes -> new String(bytes, StandardCharsets.UTF_8));
+    try (var vec = new DurableUnorderedVec<>(directory, codec, 1, 1L << 20)) {
+      vec.add("a");
+      failing.set(true);
+      assertThrows(IllegalStateException.class, () -> vec.remove("a"));
+      assertEquals(1, vec.size());
+      failing.set(false);
+    }
+
+    try (var vec = new DurableUnorderedVec<>(directory, codec)) {
+      assertEquals(1, vec.size());
+      assertTrue(vec.remove("a"));
+    }
+  }
+
+  @Test
+  public void iteratorIsReadOnly(@TempDir Path directory) {
+    try (var vec = new DurableUnorderedVec<>(directory, Codec.utf8())) {
+      vec.add("a");
+      var iterator = vec.iterator();
+      iterator.next();
+
+      assertThrows(UnsupportedOperationException.class, iterator::remove);
+    }
+  }
+
+  @Test
+  public void preconditions(@TempDir Path directory) {
+    var closed = new DurableUnorderedVec<>(directory, Codec.utf8());
+    closed.close();
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> new DurableUnorderedVec<>(null, Codec.utf8())),
+        () -> assertThrows(NullPointerException.class, () -> new DurableUnorderedVec<String>(directory, null)),
+        () -> assertThrows(IllegalArgumentException.class, () -> new DurableUnorderedVec<>(directory, Codec.utf8(), 0, 1)),
+        () -> assertThrows(IllegalArgumentException.class, () -> new DurableUnorderedVec<>(directory, Codec.utf8(), 1, 0)),
+        () -> assertThrows(IllegalStateException.class, () -> closed.add("a")),
+        () -> assertThrows(IllegalStateException.class, () -> closed.remove("a")),
+        () -> assertThrows(NullPointerException.class, () -> closed.add(null))
+    );
+  }
+}
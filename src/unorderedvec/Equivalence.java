@@ -0,0 +1,35 @@
+package unorderedvec;
+
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+public interface Equivalence<T> {
+    boolean equivalent(T a, T b);
+
+    int hash(T value);
+
+    static <T> Equivalence<T> of(BiPredicate<? super T, ? super T> equivalent, ToIntFunction<? super T> hash){
+        Objects.requireNonNull(equivalent);
+        Objects.requireNonNull(hash);
+        return new Equivalence<>() {
+            @Override
+            public boolean equivalent(T a, T b){
+                return equivalent.test(a, b);
+            }
+
+            @Override
+            public int hash(T value){
+                return hash.applyAsInt(value);
+            }
+        };
+    }
+
+    static <T> Equivalence<T> equality(){
+        return of(Object::equals, Object::hashCode);
+    }
+
+    static <T> Equivalence<T> identity(){
+        return of((a, b) -> a == b, System::identityHashCode);
+    }
+}
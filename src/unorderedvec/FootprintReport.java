@@ -0,0 +1,58 @@
+package unorderedvec;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+public final class FootprintReport {
+    public record Entry(UnorderedVec<?> vec, UnorderedVec.Footprint footprint) {
+        public Entry {
+            Objects.requireNonNull(vec);
+            Objects.requireNonNull(footprint);
+        }
+    }
+
+    private final ReferenceUnorderedVec<UnorderedVec<?>> vecs = ReferenceUnorderedVec.weak();
+
+    // the registry does not keep the vecs alive
+    public void register(UnorderedVec<?> vec){
+        vecs.add(vec);
+    }
+
+    public int registered(){
+        return vecs.size();
+    }
+
+    public long totalShallowBytes(){
+        var bytes = 0L;
+        for(var vec : vecs){
+            bytes += vec.memoryFootprint().shallowBytes();
+        }
+        return bytes;
+    }
+
+    public long totalWastedBytes(){
+        var bytes = 0L;
+        for(var vec : vecs){
+            bytes += vec.memoryFootprint().wastedBytes();
+        }
+        return bytes;
+    }
+
+    // the vecs using at most usedRatio of their capacity, the most wasteful first
+    public List<Entry> overCapacity(double usedRatio){
+        if(usedRatio < 0 || usedRatio > 1){
+            throw new IllegalArgumentException("usedRatio not in [0, 1]");
+        }
+        var entries = new ArrayList<Entry>();
+        for(var vec : vecs){
+            var footprint = vec.memoryFootprint();
+            if(footprint.size() <= usedRatio * footprint.capacity() && footprint.wastedBytes() != 0){
+                entries.add(new Entry(vec, footprint));
+            }
+        }
+        entries.sort(Comparator.comparingLong((Entry entry) -> entry.footprint().wastedBytes()).reversed());
+        return entries;
+    }
+}
@@ -0,0 +1,77 @@
+package unorderedvec;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class FootprintReportTest {
+  @Test
+  public void totals() {
+    var report = new FootprintReport();
+    var vec1 = new UnorderedVec<Integer>();
+    var vec2 = new UnorderedVec<Integer>();
+    IntStream.range(0, 16).forEach(vec2::add);
+    report.register(vec1);
+    report.register(vec2);
+
+    assertEquals(2, report.registered());
+    assertEquals(vec1.memoryFootprint().shallowBytes() + vec2.memoryFootprint().shallowBytes(), report.totalShallowBytes());
+    assertEquals(vec1.memoryFootprint().wastedBytes(), report.totalWastedBytes());
+  }
+
+  @Test
+  public void overCapacity() {
+    var report = new FootprintReport();
+    var full = new UnorderedVec<Integer>();
+    IntStream.range(0, 16).forEach(full::add);
+    var sparse = new UnorderedVec<Integer>();
+    IntStream.range(0, 33).forEach(sparse::add);
+    IntStream.range(0, 30).forEach(sparse::remove);
+    var small = new UnorderedVec<Integer>();
+    IntStream.range(0, 17).forEach(small::add);
+    IntStream.range(0, 13).forEach(small::remove);
+    var empty = new UnorderedVec<Integer>();
+    report.register(full);
+    report.register(sparse);
+    report.register(small);
+    report.register(empty);
+
+    var entries = report.overCapacity(0.25);
+    assertEquals(2, entries.size());
+    assertSame(sparse, entries.get(0).vec());
+    assertSame(small, entries.get(1).vec());
+
+    sparse.trimToSize();
+    assertEquals(1, report.overCapacity(0.25).size());
+  }
+
+  @Test
+  public void registryDoesNotRetainVecs() {
+    var report = new FootprintReport();
+    var vec = new UnorderedVec<Integer>();
+    var ref = new WeakReference<>(vec);
+    report.register(vec);
+    vec = null;
+
+    assertTimeoutPreemptively(Duration.ofMillis(5_000), () -> {
+      while (!ref.refersTo(null) || report.registered() != 0) {
+        System.gc();
+        Thread.sleep(10);
+      }
+    });
+  }
+
+  @Test
+  public void preconditions() {
+    var report = new FootprintReport();
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> report.register(null)),
+        () -> assertThrows(IllegalArgumentException.class, () -> report.overCapacity(-0.1)),
+        () -> assertThrows(IllegalArgumentException.class, () -> report.overCapacity(1.5))
+    );
+  }
+}
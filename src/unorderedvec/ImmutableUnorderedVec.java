@@ -0,0 +1,257 @@
+package unorderedvec;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+// a bit-partitioned trie of 32-wide nodes, the last leaf (the tail) is kept out of the trie
+public final class ImmutableUnorderedVec<E> implements Iterable<E> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final Object[] EMPTY_NODE = new Object[WIDTH];
+    private static final ImmutableUnorderedVec<?> EMPTY = new ImmutableUnorderedVec<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+
+    private ImmutableUnorderedVec(int size, int shift, Object[] root, Object[] tail){
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> ImmutableUnorderedVec<E> of(){
+        return (ImmutableUnorderedVec<E>) EMPTY;
+    }
+
+    public static <E> ImmutableUnorderedVec<E> copyOf(Iterable<? extends E> elements){
+        var builder = ImmutableUnorderedVec.<E>builder();
+        elements.forEach(builder::add);
+        return builder.build();
+    }
+
+    public int size(){
+        return size;
+    }
+
+    private int tailOffset(){
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] leafFor(int index){
+        if(index >= tailOffset()){
+            return tail;
+        }
+        var node = root;
+        for(var level = shift; level > 0; level -= BITS){
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int index){
+        Objects.checkIndex(index, size);
+        return (E) leafFor(index)[index & MASK];
+    }
+
+    public ImmutableUnorderedVec<E> add(E element){
+        Objects.requireNonNull(element);
+        if(size - tailOffset() < WIDTH){
+            var newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = element;
+            return new ImmutableUnorderedVec<>(size + 1, shift, root, newTail);
+        }
+        Object[] newRoot;
+        var newShift = shift;
+        if((size >>> BITS) > (1 << shift)){
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new ImmutableUnorderedVec<>(size + 1, newShift, newRoot, new Object[] { element });
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] leaf){
+        var subIndex = ((size - 1) >>> level) & MASK;
+        var node = parent.clone();
+        if(level == BITS){
+            node[subIndex] = leaf;
+        } else {
+            var child = (Object[]) parent[subIndex];
+            node[subIndex] = child != null ? pushTail(level - BITS, child, leaf) : newPath(level - BITS, leaf);
+        }
+        return node;
+    }
+
+    private static Object[] newPath(int level, Object[] leaf){
+        if(level == 0){
+            return leaf;
+        }
+        var node = new Object[WIDTH];
+        node[0] = newPath(level - BITS, leaf);
+        return node;
+    }
+
+    private ImmutableUnorderedVec<E> set(int index, E element){
+        if(index >= tailOffset()){
+            var newTail = tail.clone();
+            newTail[index & MASK] = element;
+            return new ImmutableUnorderedVec<>(size, shift, root, newTail);
+        }
+        return new ImmutableUnorderedVec<>(size, shift, set(shift, root, index, element), tail);
+    }
+
+    private static Object[] set(int level, Object[] node, int index, Object element){
+        var copy = node.clone();
+        if(level == 0){
+            copy[index & MASK] = element;
+        } else {
+            var subIndex = (index >>> level) & MASK;
+            copy[subIndex] = set(level - BITS, (Object[]) node[subIndex], index, element);
+        }
+        return copy;
+    }
+
+    private ImmutableUnorderedVec<E> pop(){
+        if(size == 1){
+            return of();
+        }
+        if(size - tailOffset() > 1){
+            return new ImmutableUnorderedVec<>(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+        }
+        var newTail = leafFor(size - 2);
+        var newRoot = popTail(shift, root);
+        var newShift = shift;
+        if(newRoot == null){
+            newRoot = EMPTY_NODE;
+        }
+        if(shift > BITS && newRoot[1] == null){
+            newRoot = (Object[]) newRoot[0];
+            newShift -= BITS;
+        }
+        return new ImmutableUnorderedVec<>(size - 1, newShift, newRoot, newTail);
+    }
+
+    private Object[] popTail(int level, Object[] node){
+        var subIndex = ((size - 2) >>> level) & MASK;
+        if(level > BITS){
+            var child = popTail(level - BITS, (Object[]) node[subIndex]);
+            if(child == null && subIndex == 0){
+                return null;
+            }
+            var copy = node.clone();
+            copy[subIndex] = child;
+            return copy;
+        }
+        if(subIndex == 0){
+            return null;
+        }
+        var copy = node.clone();
+        copy[subIndex] = null;
+        return copy;
+    }
+
+    public ImmutableUnorderedVec<E> removeAt(int index){
+        Objects.checkIndex(index, size);
+        var last = size - 1;
+        return (index == last ? this : set(index, get(last))).pop();
+    }
+
+    public ImmutableUnorderedVec<E> remove(Object value){
+        Objects.requireNonNull(value);
+        for(var i = 0; i < size; i++){
+            if(leafFor(i)[i & MASK].equals(value)){
+                return removeAt(i);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public Iterator<E> iterator(){
+        return new Iterator<>() {
+            int index;
+            Object[] leaf;
+
+            @Override
+            public boolean hasNext(){
+                return index < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next(){
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                if((index & MASK) == 0){
+                    leaf = leafFor(index);
+                }
+                return (E) leaf[index++ & MASK];
+            }
+        };
+    }
+
+    public static <E> Builder<E> builder(){
+        return new Builder<>();
+    }
+
+    // accumulates in a flat array and builds the trie bottom-up in one pass
+    public static final class Builder<E> {
+        private Object[] elements = new Object[WIDTH];
+        private int size;
+
+        private Builder(){
+        }
+
+        public Builder<E> add(E element){
+            Objects.requireNonNull(element);
+            if(size == elements.length){
+                elements = Arrays.copyOf(elements, elements.length * 2);
+            }
+            elements[size++] = element;
+            return this;
+        }
+
+        public ImmutableUnorderedVec<E> build(){
+            if(size == 0){
+                return of();
+            }
+            var tailOffset = size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+            var tail = Arrays.copyOfRange(elements, tailOffset, size);
+            var nodes = new Object[tailOffset >>> BITS];
+            for(var i = 0; i < nodes.length; i++){
+                nodes[i] = Arrays.copyOfRange(elements, i << BITS, (i + 1) << BITS);
+            }
+            var shift = BITS;
+            var count = nodes.length;
+            while(count > WIDTH){
+                var parents = (count + MASK) >>> BITS;
+                for(var i = 0; i < parents; i++){
+                    var node = new Object[WIDTH];
+                    System.arraycopy(nodes, i << BITS, node, 0, Math.min(WIDTH, count - (i << BITS)));
+                    nodes[i] = node;
+                }
+                count = parents;
+                shift += BITS;
+            }
+            // only [0, count) is live, the rest of nodes still holds the children of the last collapse
+            var root = EMPTY_NODE;
+            if(count != 0){
+                root = new Object[WIDTH];
+                System.arraycopy(nodes, 0, root, 0, count);
+            }
+            return new ImmutableUnorderedVec<>(size, shift, root, tail);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package unorderedvec;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class ImmutableUnorderedVecTest {
+  private static <E> List<E> toList(ImmutableUnorderedVec<E> vec) {
+    var list = new ArrayList<E>();
+    vec.forEach(list::add);
+    return list;
+  }
+
+  @Test
+  public void empty() {
+    var vec = ImmutableUnorderedVec.<String>of();
+    assertEquals(0, vec.size());
+    assertFalse(vec.iterator().hasNext());
+    assertThrows(NoSuchElementException.class, () -> vec.iterator().next());
+  }
+
+  @Test
+  public void addReturnsANewVersion() {
+    var vec1 = ImmutableUnorderedVec.<String>of().add("A");
+    var vec2 = vec1.add("B");
+
+    assertEquals(List.of("A"), toList(vec1));
+    assertEquals(List.of("A", "B"), toList(vec2));
+  }
+
+  @Test
+  public void addALot() {
+    var vec = ImmutableUnorderedVec.<Integer>of();
+    for (var i = 0; i < 100_000; i++) {
+      vec = vec.add(i);
+    }
+
+    assertEquals(100_000, vec.size());
+    assertEquals(IntStream.range(0, 100_000).boxed().toList(), toList(vec));
+    for (var i = 0; i < 100_000; i += 997) {
+      assertEquals(i, vec.get(i));
+    }
+  }
+
+  @Test
+  public void removeAtSwapsWithLast() {
+    var vec = ImmutableUnorderedVec.<String>of().add("A").add("B").add("C");
+    var removed = vec.removeAt(0);
+
+    assertEquals(List.of("C", "B"), toList(removed));
+    assertEquals(List.of("A", "B", "C"), toList(vec));
+  }
+
+  @Test
+  public void remove() {
+    var vec = ImmutableUnorderedVec.<String>of().add("A").add("B");
+
+    assertEquals(List.of("B"), toList(vec.remove("A")));
+    assertSame(vec, vec.remove("C"));
+  }
+
+  @Test
+  public void removeEverythingAcrossLevels() {
+    var vec = ImmutableUnorderedVec.<Integer>of();
+    for (var i = 0; i < 2_000; i++) {
+      vec = vec.add(i);
+    }
+    var random = new SplittableRandom(0);
+    var expected = new HashMap<Integer, Integer>();
+    vec.forEach(value -> expected.merge(value, 1, Integer::sum));
+    while (vec.size() != 0) {
+      var index = random.nextInt(vec.size());
+      var value = vec.get(index);
+      vec = vec.removeAt(index);
+      expected.remove(value);
+      if (vec.size() % 97 == 0) {
+        var actual = new HashMap<Integer, Integer>();
+        vec.forEach(v -> actual.merge(v, 1, Integer::sum));
+        assertEquals(expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void oldVersionsAreUnchanged() {
+    var versions = new ArrayList<ImmutableUnorderedVec<Integer>>();
+    var vec = ImmutableUnorderedVec.<Integer>of();
+    for (var i = 0; i < 1_100; i++) {
+      vec = vec.add(i);
+      versions.add(vec);
+    }
+    for (var i = 0; i < 1_100; i++) {
+      vec = vec.removeAt(0);
+      versions.add(vec);
+    }
+
+    for (var i = 0; i < 1_100; i++) {
+      assertEquals(IntStream.rangeClosed(0, i).boxed().toList(), toList(versions.get(i)));
+    }
+    assertEquals(0, versions.getLast().size());
+  }
+
+  @Test
+  public void builderMatchesAdd() {
+    for (var size : new int[] { 0, 1, 31, 32, 33, 64, 65, 1_024, 1_056, 1_057, 33_000, 40_000 }) {
+      var builder = ImmutableUnorderedVec.<Integer>builder();
+      var vec = ImmutableUnorderedVec.<Integer>of();
+      for (var i = 0; i < size; i++) {
+        builder.add(i);
+        vec = vec.add(i);
+      }
+      var built = builder.build();
+
+      assertEquals(toList(vec), toList(built));
+      assertEquals(toList(vec.add(-1)), toList(built.add(-1)));
+      if (size != 0) {
+        assertEquals(toList(vec.removeAt(0)), toList(built.removeAt(0)));
+      }
+    }
+  }
+
+  private static ImmutableUnorderedVec<Object> buildWith(Object element, int position, int size) {
+    var builder = ImmutableUnorderedVec.builder();
+    IntStream.range(0, size).forEach(i -> builder.add(i == position ? element : new Object()));
+    return builder.build();
+  }
+
+  @Test
+  public void builtVecDoesNotRetainRemovedElements() {
+    var removed = new Object();
+    var ref = new WeakReference<>(removed);
+    // after the collapse, the root used to keep the leaves 2 to 31 (elements 64 to 1023) as stale entries
+    var vec = buildWith(removed, 100, 2_000).remove(removed);
+    removed = null;
+
+    assertEquals(1_999, vec.size());
+    assertTimeoutPreemptively(Duration.ofMillis(5_000), () -> {
+      while (!ref.refersTo(null)) {
+        System.gc();
+        Thread.sleep(10);
+      }
+    });
+  }
+
+  @Test
+  public void copyOf() {
+    var vec = ImmutableUnorderedVec.copyOf(List.of("A", "B", "C"));
+    assertEquals(List.of("A", "B", "C"), toList(vec));
+  }
+
+  @Test
+  public void preconditions() {
+    var vec = ImmutableUnorderedVec.<String>of().add("A");
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> vec.add(null)),
+        () -> assertThrows(NullPointerException.class, () -> vec.remove(null)),
+        () -> assertThrows(NullPointerException.class, () -> ImmutableUnorderedVec.builder().add(null)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> vec.removeAt(1)),
+        () -> assertThrows(IndexOutOfBoundsException.class, () -> vec.get(-1))
+    );
+  }
+}
@@ -0,0 +1,69 @@
+package unorderedvec;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Modifier;
+
+final class MemoryLayout {
+    private static final boolean COMPRESSED_OOPS;
+    private static final boolean COMPRESSED_CLASS_POINTERS;
+    private static final int OBJECT_ALIGNMENT;
+
+    static {
+        var compressedOops = true;
+        var compressedClassPointers = true;
+        var objectAlignment = 8;
+        try {
+            var bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            compressedOops = Boolean.parseBoolean(bean.getVMOption("UseCompressedOops").getValue());
+            compressedClassPointers = Boolean.parseBoolean(bean.getVMOption("UseCompressedClassPointers").getValue());
+            objectAlignment = Integer.parseInt(bean.getVMOption("ObjectAlignmentInBytes").getValue());
+        } catch (RuntimeException | LinkageError e) {
+            // not a HotSpot VM, keep the 64-bit defaults
+        }
+        COMPRESSED_OOPS = compressedOops;
+        COMPRESSED_CLASS_POINTERS = compressedClassPointers;
+        OBJECT_ALIGNMENT = objectAlignment;
+    }
+
+    private MemoryLayout(){
+    }
+
+    static int referenceSize(){
+        return COMPRESSED_OOPS ? 4 : 8;
+    }
+
+    private static long align(long bytes){
+        return (bytes + OBJECT_ALIGNMENT - 1) / OBJECT_ALIGNMENT * OBJECT_ALIGNMENT;
+    }
+
+    static long referenceArrayBytes(int length){
+        return align((COMPRESSED_CLASS_POINTERS ? 16 : 24) + (long) length * referenceSize());
+    }
+
+    // ignores field packing gaps, good enough to compare instances
+    static long instanceBytes(Class<?> type){
+        long bytes = COMPRESSED_CLASS_POINTERS ? 12 : 16;
+        for(var current = type; current != null; current = current.getSuperclass()){
+            for(var field : current.getDeclaredFields()){
+                if(Modifier.isStatic(field.getModifiers())){
+                    continue;
+                }
+                var fieldType = field.getType();
+                if(fieldType == long.class || fieldType == double.class){
+                    bytes += 8;
+                } else if(fieldType == int.class || fieldType == float.class){
+                    bytes += 4;
+                } else if(fieldType == short.class || fieldType == char.class){
+                    bytes += 2;
+                } else if(fieldType == byte.class || fieldType == boolean.class){
+                    bytes += 1;
+                } else {
+                    bytes += referenceSize();
+                }
+            }
+        }
+        return align(bytes);
+    }
+}
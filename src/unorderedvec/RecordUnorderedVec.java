@@ -0,0 +1,388 @@
+package unorderedvec;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+// stores each record component in its own array, a record is only rebuilt when it is read back
+public final class RecordUnorderedVec<R extends Record> implements Iterable<R> {
+    private static abstract class Column {
+        final String name;
+        final MethodHandle accessor;
+
+        Column(String name, MethodHandle accessor){
+            this.name = name;
+            this.accessor = accessor;
+        }
+
+        abstract void resize(int capacity);
+
+        abstract void store(int index, Record record) throws Throwable;
+
+        abstract boolean matches(int index, Record record) throws Throwable;
+
+        abstract Object load(int index);
+
+        abstract void move(int from, int to);
+
+        void clear(int index){
+        }
+    }
+
+    private static final class IntColumn extends Column {
+        private int[] values = new int[0];
+
+        IntColumn(String name, MethodHandle accessor){
+            super(name, accessor.asType(MethodType.methodType(int.class, Record.class)));
+        }
+
+        @Override
+        void resize(int capacity){
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void store(int index, Record record) throws Throwable {
+            values[index] = (int) accessor.invokeExact(record);
+        }
+
+        @Override
+        boolean matches(int index, Record record) throws Throwable {
+            return values[index] == (int) accessor.invokeExact(record);
+        }
+
+        @Override
+        Object load(int index){
+            return values[index];
+        }
+
+        @Override
+        void move(int from, int to){
+            values[to] = values[from];
+        }
+    }
+
+    private static final class LongColumn extends Column {
+        private long[] values = new long[0];
+
+        LongColumn(String name, MethodHandle accessor){
+            super(name, accessor.asType(MethodType.methodType(long.class, Record.class)));
+        }
+
+        @Override
+        void resize(int capacity){
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void store(int index, Record record) throws Throwable {
+            values[index] = (long) accessor.invokeExact(record);
+        }
+
+        @Override
+        boolean matches(int index, Record record) throws Throwable {
+            return values[index] == (long) accessor.invokeExact(record);
+        }
+
+        @Override
+        Object load(int index){
+            return values[index];
+        }
+
+        @Override
+        void move(int from, int to){
+            values[to] = values[from];
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        private double[] values = new double[0];
+
+        DoubleColumn(String name, MethodHandle accessor){
+            super(name, accessor.asType(MethodType.methodType(double.class, Record.class)));
+        }
+
+        @Override
+        void resize(int capacity){
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void store(int index, Record record) throws Throwable {
+            values[index] = (double) accessor.invokeExact(record);
+        }
+
+        // same semantics as the equals of a record
+        @Override
+        boolean matches(int index, Record record) throws Throwable {
+            return Double.compare(values[index], (double) accessor.invokeExact(record)) == 0;
+        }
+
+        @Override
+        Object load(int index){
+            return values[index];
+        }
+
+        @Override
+        void move(int from, int to){
+            values[to] = values[from];
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+        private Object[] values = new Object[0];
+
+        ObjectColumn(String name, MethodHandle accessor){
+            super(name, accessor.asType(MethodType.methodType(Object.class, Record.class)));
+        }
+
+        @Override
+        void resize(int capacity){
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void store(int index, Record record) throws Throwable {
+            values[index] = (Object) accessor.invokeExact(record);
+        }
+
+        @Override
+        boolean matches(int index, Record record) throws Throwable {
+            return Objects.equals(values[index], (Object) accessor.invokeExact(record));
+        }
+
+        @Override
+        Object load(int index){
+            return values[index];
+        }
+
+        @Override
+        void move(int from, int to){
+            values[to] = values[from];
+        }
+
+        @Override
+        void clear(int index){
+            values[index] = null;
+        }
+    }
+
+    private final Class<R> type;
+    private final Column[] columns;
+    private final MethodHandle constructor;
+    private int capacity;
+    private int size;
+
+    public RecordUnorderedVec(Class<R> type){
+        this.type = Objects.requireNonNull(type);
+        if(!type.isRecord()){
+            throw new IllegalArgumentException(type + " is not a record");
+        }
+        var components = type.getRecordComponents();
+        var componentTypes = new Class<?>[components.length];
+        columns = new Column[components.length];
+        var lookup = MethodHandles.lookup();
+        try {
+            for(var i = 0; i < components.length; i++){
+                var component = components[i];
+                componentTypes[i] = component.getType();
+                var accessorMethod = component.getAccessor();
+                accessorMethod.setAccessible(true);
+                var accessor = lookup.unreflect(accessorMethod);
+                var name = component.getName();
+                var componentType = component.getType();
+                columns[i] = componentType == int.class ? new IntColumn(name, accessor)
+                        : componentType == long.class ? new LongColumn(name, accessor)
+                        : componentType == double.class ? new DoubleColumn(name, accessor)
+                        : new ObjectColumn(name, accessor);
+            }
+            var canonical = type.getDeclaredConstructor(componentTypes);
+            canonical.setAccessible(true);
+            constructor = lookup.unreflectConstructor(canonical)
+                    .asSpreader(Object[].class, components.length)
+                    .asType(MethodType.methodType(Record.class, Object[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("cannot access the components of " + type, e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable throwable){
+        if(throwable instanceof RuntimeException runtimeException){
+            return runtimeException;
+        }
+        if(throwable instanceof Error error){
+            throw error;
+        }
+        return new UndeclaredThrowableException(throwable);
+    }
+
+    public void add(R record){
+        Objects.requireNonNull(record);
+        if(size == capacity){
+            if(capacity == Integer.MAX_VALUE - 16){
+                return;
+            }
+            capacity = (int) Math.min(Integer.MAX_VALUE - 16, Math.max(capacity * 2L, 4));
+            for(var column : columns){
+                column.resize(capacity);
+            }
+        }
+        try {
+            for(var column : columns){
+                column.store(size, record);
+            }
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+        size++;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    private boolean matches(int index, Record record) throws Throwable {
+        for(var column : columns){
+            if(!column.matches(index, record)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean remove(Object value){
+        Objects.requireNonNull(value);
+        if(!type.isInstance(value)){
+            return false;
+        }
+        var record = (Record) value;
+        try {
+            for(var i = 0; i < size; i++){
+                if(matches(i, record)){
+                    removeAt(i);
+                    return true;
+                }
+            }
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+        return false;
+    }
+
+    // the swap-remove is applied to every column
+    private void removeAt(int index){
+        var last = size - 1;
+        for(var column : columns){
+            column.move(last, index);
+            column.clear(last);
+        }
+        size = last;
+    }
+
+    private R get(int index){
+        var args = new Object[columns.length];
+        for(var i = 0; i < columns.length; i++){
+            args[i] = columns[i].load(index);
+        }
+        try {
+            return type.cast((Record) constructor.invokeExact(args));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    private Column column(String component){
+        Objects.requireNonNull(component);
+        for(var column : columns){
+            if(column.name.equals(component)){
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("no component " + component + " in " + type);
+    }
+
+    private <C extends Column> C column(String component, Class<C> columnType){
+        var column = column(component);
+        if(!columnType.isInstance(column)){
+            throw new IllegalArgumentException("component " + component + " is not stored as " + columnType.getSimpleName());
+        }
+        return columnType.cast(column);
+    }
+
+    public UnorderedVec<R> filterByInt(String component, IntPredicate predicate){
+        var values = column(component, IntColumn.class).values;
+        Objects.requireNonNull(predicate);
+        var result = new UnorderedVec<R>();
+        for(var i = 0; i < size; i++){
+            if(predicate.test(values[i])){
+                result.add(get(i));
+            }
+        }
+        return result;
+    }
+
+    public UnorderedVec<R> filterByLong(String component, LongPredicate predicate){
+        var values = column(component, LongColumn.class).values;
+        Objects.requireNonNull(predicate);
+        var result = new UnorderedVec<R>();
+        for(var i = 0; i < size; i++){
+            if(predicate.test(values[i])){
+                result.add(get(i));
+            }
+        }
+        return result;
+    }
+
+    public UnorderedVec<R> filterByDouble(String component, DoublePredicate predicate){
+        var values = column(component, DoubleColumn.class).values;
+        Objects.requireNonNull(predicate);
+        var result = new UnorderedVec<R>();
+        for(var i = 0; i < size; i++){
+            if(predicate.test(values[i])){
+                result.add(get(i));
+            }
+        }
+        return result;
+    }
+
+    public UnorderedVec<R> filterBy(String component, Predicate<Object> predicate){
+        var column = column(component);
+        Objects.requireNonNull(predicate);
+        var result = new UnorderedVec<R>();
+        for(var i = 0; i < size; i++){
+            if(predicate.test(column.load(i))){
+                result.add(get(i));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<R> iterator(){
+        return new Iterator<>() {
+            int index;
+
+            @Override
+            public boolean hasNext(){
+                return index < size;
+            }
+
+            @Override
+            public R next(){
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+        };
+    }
+}
@@ -0,0 +1,118 @@
+package unorderedvec;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class RecordUnorderedVecTest {
+  record Person(String name) {}
+  record Employee(String name, int age, long id, double salary, boolean active) {}
+
+  private static <R extends Record> Set<R> toSet(Iterable<R> vec) {
+    var set = new HashSet<R>();
+    vec.forEach(set::add);
+    return set;
+  }
+
+  @Test
+  public void vecOfPerson() {
+    var vec = new RecordUnorderedVec<>(Person.class);
+    vec.add(new Person("Jane"));
+    vec.add(new Person("John"));
+
+    assertEquals(2, vec.size());
+    assertEquals(Set.of(new Person("Jane"), new Person("John")), toSet(vec));
+  }
+
+  @Test
+  public void vecOfLocalRecord() {
+    record Point(int x, int y) {}
+    var vec = new RecordUnorderedVec<>(Point.class);
+    vec.add(new Point(1, 2));
+
+    assertEquals(new Point(1, 2), vec.iterator().next());
+  }
+
+  @Test
+  public void allComponentKinds() {
+    var vec = new RecordUnorderedVec<>(Employee.class);
+    var employee = new Employee("Ada", 36, 1L << 40, 1234.5, true);
+    vec.add(employee);
+
+    assertEquals(employee, vec.iterator().next());
+  }
+
+  @Test
+  public void removeAppliesToAllColumns() {
+    var vec = new RecordUnorderedVec<>(Employee.class);
+    IntStream.range(0, 100).forEach(i -> vec.add(new Employee("e" + i, i, i * 10L, i / 2.0, i % 2 == 0)));
+
+    assertTrue(vec.remove(new Employee("e10", 10, 100L, 5.0, true)));
+    assertFalse(vec.remove(new Employee("e11", 11, 110L, 5.0, false)));
+    assertFalse(vec.remove(new Person("e12")));
+
+    assertEquals(99, vec.size());
+    for (var employee : vec) {
+      var i = employee.age();
+      assertNotEquals(10, i);
+      assertEquals(new Employee("e" + i, i, i * 10L, i / 2.0, i % 2 == 0), employee);
+    }
+  }
+
+  @Test
+  public void filterByInt() {
+    var vec = new RecordUnorderedVec<>(Employee.class);
+    IntStream.range(0, 100).forEach(i -> vec.add(new Employee("e" + i, i, i, i, true)));
+
+    var result = vec.filterByInt("age", age -> age >= 95);
+    assertEquals(5, result.size());
+    for (var employee : result) {
+      assertTrue(employee.age() >= 95);
+    }
+  }
+
+  @Test
+  public void filterByLongAndDouble() {
+    var vec = new RecordUnorderedVec<>(Employee.class);
+    IntStream.range(0, 100).forEach(i -> vec.add(new Employee("e" + i, i, i * 2L, i * 0.5, true)));
+
+    assertEquals(10, vec.filterByLong("id", id -> id < 20).size());
+    assertEquals(3, vec.filterByDouble("salary", salary -> salary >= 48.5).size());
+  }
+
+  @Test
+  public void filterBy() {
+    var vec = new RecordUnorderedVec<>(Person.class);
+    vec.add(new Person("Jane"));
+    vec.add(new Person("John"));
+    vec.add(new Person("Anita"));
+
+    var result = vec.filterBy("name", name -> ((String) name).startsWith("J"));
+    assertEquals(2, result.size());
+  }
+
+  @Test
+  public void filterPreconditions() {
+    var vec = new RecordUnorderedVec<>(Employee.class);
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> vec.filterByInt("name", __ -> true)),
+        () -> assertThrows(IllegalArgumentException.class, () -> vec.filterByLong("age", __ -> true)),
+        () -> assertThrows(IllegalArgumentException.class, () -> vec.filterByDouble("unknown", __ -> true)),
+        () -> assertThrows(NullPointerException.class, () -> vec.filterByInt("age", null)),
+        () -> assertThrows(NullPointerException.class, () -> vec.filterBy(null, __ -> true))
+    );
+  }
+
+  @Test
+  public void preconditions() {
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> new RecordUnorderedVec<>(null)),
+        () -> assertThrows(NullPointerException.class, () -> new RecordUnorderedVec<>(Person.class).add(null)),
+        () -> assertThrows(NullPointerException.class, () -> new RecordUnorderedVec<>(Person.class).remove(null))
+    );
+  }
+}
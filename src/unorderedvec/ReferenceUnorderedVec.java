@@ -0,0 +1,237 @@
+package unorderedvec;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+public final class ReferenceUnorderedVec<E> implements Iterable<E> {
+    public enum Strength { WEAK, SOFT }
+
+    private interface Entry<E> {
+        E get();
+        int index();
+        void index(int index);
+        boolean drained();
+        void drain();
+    }
+
+    private static final class WeakEntry<E> extends WeakReference<E> implements Entry<E> {
+        private int index;
+        private boolean drained;
+
+        private WeakEntry(E referent, ReferenceQueue<? super E> queue, int index){
+            super(referent, queue);
+            this.index = index;
+        }
+
+        @Override
+        public int index(){
+            return index;
+        }
+
+        @Override
+        public void index(int index){
+            this.index = index;
+        }
+
+        @Override
+        public boolean drained(){
+            return drained;
+        }
+
+        @Override
+        public void drain(){
+            drained = true;
+        }
+    }
+
+    private static final class SoftEntry<E> extends SoftReference<E> implements Entry<E> {
+        private int index;
+        private boolean drained;
+
+        private SoftEntry(E referent, ReferenceQueue<? super E> queue, int index){
+            super(referent, queue);
+            this.index = index;
+        }
+
+        @Override
+        public int index(){
+            return index;
+        }
+
+        @Override
+        public void index(int index){
+            this.index = index;
+        }
+
+        @Override
+        public boolean drained(){
+            return drained;
+        }
+
+        @Override
+        public void drain(){
+            drained = true;
+        }
+    }
+
+    private final Strength strength;
+    private final ReferenceQueue<E> queue = new ReferenceQueue<>();
+    private Entry<E>[] entries;
+    private int size;
+    // cleared entries taken from the queue by size(), they are only removed by the next structural operation
+    private Entry<E>[] drained;
+    private int drainedCount;
+    private int dead;
+
+    @SuppressWarnings("unchecked")
+    public ReferenceUnorderedVec(Strength strength){
+        this.strength = Objects.requireNonNull(strength);
+        entries = (Entry<E>[]) new Entry<?>[16];
+        drained = (Entry<E>[]) new Entry<?>[4];
+    }
+
+    public static <E> ReferenceUnorderedVec<E> weak(){
+        return new ReferenceUnorderedVec<>(Strength.WEAK);
+    }
+
+    public static <E> ReferenceUnorderedVec<E> soft(){
+        return new ReferenceUnorderedVec<>(Strength.SOFT);
+    }
+
+    public void add(E element){
+        Objects.requireNonNull(element);
+        purge();
+        if(size >= entries.length){
+            if(entries.length == Integer.MAX_VALUE - 16){
+                return;
+            }
+            var i = entries.length * 2;
+            if(i < 0){
+                i = Integer.MAX_VALUE - 16;
+            }
+            entries = Arrays.copyOf(entries, i);
+        }
+        entries[size] = switch (strength) {
+            case WEAK -> new WeakEntry<>(element, queue, size);
+            case SOFT -> new SoftEntry<>(element, queue, size);
+        };
+        size++;
+    }
+
+    public boolean remove(Object value){
+        Objects.requireNonNull(value);
+        purge();
+        for(var i = 0; i < size; i++){
+            if(value.equals(entries[i].get())){
+                removeAt(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // not structural, so it can be called while iterating
+    @SuppressWarnings("unchecked")
+    public int size(){
+        Reference<? extends E> reference;
+        while((reference = queue.poll()) != null){
+            var entry = (Entry<E>) reference;
+            if(entry.index() != -1){
+                entry.drain();
+                if(drainedCount == drained.length){
+                    drained = Arrays.copyOf(drained, drainedCount * 2);
+                }
+                drained[drainedCount++] = entry;
+                dead++;
+            }
+        }
+        return size - dead;
+    }
+
+    private void purge(){
+        for(var i = 0; i < drainedCount; i++){
+            var index = drained[i].index();
+            if(index != -1){
+                removeAt(index);
+            }
+            drained[i] = null;
+        }
+        drainedCount = 0;
+        Reference<? extends E> reference;
+        while((reference = queue.poll()) != null){
+            var index = ((Entry<?>) reference).index();
+            if(index != -1){
+                removeAt(index);
+            }
+        }
+    }
+
+    private void removeAt(int index){
+        var last = size - 1;
+        if(entries[index].drained()){
+            dead--;
+        }
+        entries[index].index(-1);
+        if(index != last){
+            var moved = entries[last];
+            moved.index(index);
+            entries[index] = moved;
+        }
+        entries[last] = null;
+        size = last;
+    }
+
+    // walks the slots backward, so the entry swapped in by a removal has always been visited already
+    @Override
+    public Iterator<E> iterator(){
+        purge();
+        return new Iterator<>() {
+            int index = size;
+            E next;
+            Entry<E> lastReturned;
+
+            @Override
+            public boolean hasNext(){
+                while(next == null && index > 0){
+                    index--;
+                    var element = entries[index].get();
+                    if(element == null){
+                        removeAt(index);
+                    } else {
+                        next = element;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public E next(){
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                var element = next;
+                next = null;
+                lastReturned = entries[index];
+                return element;
+            }
+
+            @Override
+            public void remove(){
+                if(lastReturned == null){
+                    throw new IllegalStateException();
+                }
+                var index = lastReturned.index();
+                if(index != -1){
+                    removeAt(index);
+                }
+                lastReturned = null;
+            }
+        };
+    }
+}
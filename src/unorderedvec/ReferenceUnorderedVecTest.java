@@ -0,0 +1,172 @@
+package unorderedvec;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class ReferenceUnorderedVecTest {
+  record Listener(String name) {}
+
+  private static void awaitCleared(WeakReference<?> ref) {
+    assertTimeoutPreemptively(Duration.ofMillis(5_000), () -> {
+      while (!ref.refersTo(null)) {
+        System.gc();
+        Thread.sleep(10);
+      }
+    });
+  }
+
+  @Test
+  public void addAndIterate() {
+    var vec = ReferenceUnorderedVec.<Listener>weak();
+    var listeners = List.of(new Listener("a"), new Listener("b"), new Listener("c"));
+    listeners.forEach(vec::add);
+
+    var set = new HashSet<Listener>();
+    for (var listener : vec) {
+      set.add(listener);
+    }
+    assertEquals(3, vec.size());
+    assertEquals(Set.copyOf(listeners), set);
+  }
+
+  @Test
+  public void clearedEntriesArePurged() {
+    var vec = ReferenceUnorderedVec.<Listener>weak();
+    var listener = new Listener("a");
+    var ref = new WeakReference<>(listener);
+    vec.add(listener);
+    listener = null;
+
+    awaitCleared(ref);
+    assertTimeoutPreemptively(Duration.ofMillis(5_000), () -> {
+      while (vec.size() != 0) {
+        Thread.sleep(10);
+      }
+    });
+  }
+
+  @Test
+  public void iterationNeverSeesDeadEntries() {
+    var vec = ReferenceUnorderedVec.<Listener>weak();
+    var alive = new ArrayList<Listener>();
+    var refs = new ArrayList<WeakReference<Listener>>();
+    for (var i = 0; i < 100; i++) {
+      var listener = new Listener("" + i);
+      if (i % 3 == 0) {
+        alive.add(listener);
+      } else {
+        refs.add(new WeakReference<>(listener));
+      }
+      vec.add(listener);
+    }
+    refs.forEach(ReferenceUnorderedVecTest::awaitCleared);
+
+    var seen = new HashSet<Listener>();
+    for (var listener : vec) {
+      assertNotNull(listener);
+      seen.add(listener);
+    }
+    assertEquals(Set.copyOf(alive), seen);
+    assertEquals(alive.size(), vec.size());
+  }
+
+  @Test
+  public void sizeDuringIterationDoesNotRevisit() {
+    var vec = ReferenceUnorderedVec.<Listener>weak();
+    var listener = new Listener("dead");
+    var ref = new WeakReference<>(listener);
+    vec.add(listener);
+    listener = null;
+    var alive = IntStream.range(0, 9).mapToObj(i -> new Listener("l" + i)).toList();
+    alive.forEach(vec::add);
+
+    var visited = new ArrayList<Listener>();
+    for (var element : vec) {
+      if (visited.isEmpty()) {
+        awaitCleared(ref);
+        assertTimeoutPreemptively(Duration.ofMillis(5_000), () -> {
+          while (vec.size() != 9) {
+            Thread.sleep(10);
+          }
+        });
+      }
+      visited.add(element);
+      assertEquals(9, vec.size());
+    }
+
+    assertEquals(9, visited.size());
+    assertEquals(Set.copyOf(alive), Set.copyOf(visited));
+    vec.add(new Listener("new"));
+    assertEquals(10, vec.size());
+  }
+
+  @Test
+  public void softEntriesSurviveWithoutMemoryPressure() {
+    var vec = ReferenceUnorderedVec.<Listener>soft();
+    vec.add(new Listener("a"));
+    System.gc();
+
+    assertEquals(1, vec.size());
+  }
+
+  @Test
+  public void remove() {
+    var vec = ReferenceUnorderedVec.<String>weak();
+    vec.add("A");
+    vec.add("B");
+    vec.add("C");
+
+    assertTrue(vec.remove("B"));
+    assertFalse(vec.remove("D"));
+    assertEquals(2, vec.size());
+  }
+
+  @Test
+  public void iteratorRemove() {
+    var vec = ReferenceUnorderedVec.<Integer>weak();
+    var values = IntStream.range(0, 1_000).boxed().toList();
+    values.forEach(vec::add);
+
+    var seen = new HashSet<Integer>();
+    var iterator = vec.iterator();
+    while (iterator.hasNext()) {
+      var value = iterator.next();
+      seen.add(value);
+      if (value % 2 == 0) {
+        iterator.remove();
+      }
+    }
+
+    assertEquals(Set.copyOf(values), seen);
+    assertEquals(500, vec.size());
+    for (var value : vec) {
+      assertEquals(1, value % 2);
+    }
+  }
+
+  @Test
+  public void iteratorRemoveWithoutNext() {
+    var vec = ReferenceUnorderedVec.<String>weak();
+    vec.add("A");
+    var iterator = vec.iterator();
+    assertThrows(IllegalStateException.class, iterator::remove);
+  }
+
+  @Test
+  public void preconditions() {
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> new ReferenceUnorderedVec<>(null)),
+        () -> assertThrows(NullPointerException.class, () -> ReferenceUnorderedVec.weak().add(null)),
+        () -> assertThrows(NullPointerException.class, () -> ReferenceUnorderedVec.soft().remove(null))
+    );
+  }
+}
@@ -0,0 +1,160 @@
+package unorderedvec;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+public final class ShardedUnorderedVec<E> implements Iterable<E> {
+    // the padding sits between the objects of two consecutive shards, so their vecs and lock states
+    // are not allocated on the same cache lines
+    private static final class Shard<E> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final UnorderedVec<E> vec = new UnorderedVec<>();
+        private long p00, p01, p02, p03, p04, p05, p06, p07;
+        private long p08, p09, p10, p11, p12, p13, p14, p15;
+    }
+
+    // the shard of a thread starts at its thread hash and moves when the shard is contended
+    private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> new int[] { threadHash() });
+
+    private final Shard<E>[] shards;
+    private final int mask;
+
+    public ShardedUnorderedVec(){
+        this(Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+    }
+
+    @SuppressWarnings("unchecked")
+    ShardedUnorderedVec(int count){
+        if(count <= 0 || Integer.bitCount(count) != 1){
+            throw new IllegalArgumentException("count is not a power of 2 " + count);
+        }
+        shards = (Shard<E>[]) new Shard<?>[count];
+        for(var i = 0; i < count; i++){
+            shards[i] = new Shard<>();
+        }
+        mask = count - 1;
+    }
+
+    static int threadHash(){
+        var id = Thread.currentThread().threadId();
+        var hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int rehash(int probe){
+        probe ^= probe << 13;
+        probe ^= probe >>> 17;
+        return probe ^ (probe << 5);
+    }
+
+    int localShard(){
+        return PROBE.get()[0] & mask;
+    }
+
+    ReentrantLock lockOf(int shard){
+        return shards[shard].lock;
+    }
+
+    // a failed tryLock moves the thread to another shard, after one try per shard it waits on the last one
+    private Shard<E> lockLocalShard(){
+        var probe = PROBE.get();
+        for(var i = 1; i < shards.length; i++){
+            var shard = shards[probe[0] & mask];
+            if(shard.lock.tryLock()){
+                return shard;
+            }
+            probe[0] = rehash(probe[0]);
+        }
+        var shard = shards[probe[0] & mask];
+        shard.lock.lock();
+        return shard;
+    }
+
+    public void add(E element){
+        Objects.requireNonNull(element);
+        var shard = lockLocalShard();
+        try {
+            shard.vec.add(element);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    public boolean remove(Object value){
+        Objects.requireNonNull(value);
+        var local = localShard();
+        for(var i = 0; i < shards.length; i++){
+            var shard = shards[(local + i) & mask];
+            shard.lock.lock();
+            try {
+                if(shard.vec.remove(value)){
+                    return true;
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return false;
+    }
+
+    public int size(){
+        var size = 0;
+        for(var shard : shards){
+            shard.lock.lock();
+            try {
+                size += shard.vec.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private static Object[] snapshot(Shard<?> shard){
+        shard.lock.lock();
+        try {
+            var array = new Object[shard.vec.size()];
+            var i = 0;
+            for(var element : shard.vec){
+                array[i++] = element;
+            }
+            return array;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    // weakly consistent, each shard is copied under its lock when the iteration reaches it
+    @Override
+    public Iterator<E> iterator(){
+        return new Iterator<>() {
+            int shard;
+            Object[] current = snapshot(shards[0]);
+            int index;
+
+            @Override
+            public boolean hasNext(){
+                while(index == current.length){
+                    if(shard == shards.length - 1){
+                        return false;
+                    }
+                    shard++;
+                    current = snapshot(shards[shard]);
+                    index = 0;
+                }
+                return true;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next(){
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                return (E) current[index++];
+            }
+        };
+    }
+}
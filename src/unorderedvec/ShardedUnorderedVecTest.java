@@ -0,0 +1,136 @@
+package unorderedvec;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class ShardedUnorderedVecTest {
+  @Test
+  public void addAndSize() {
+    var vec = new ShardedUnorderedVec<String>();
+    vec.add("foo");
+    vec.add("bar");
+    assertEquals(2, vec.size());
+  }
+
+  @Test
+  public void empty() {
+    var vec = new ShardedUnorderedVec<String>();
+    assertEquals(0, vec.size());
+    assertFalse(vec.iterator().hasNext());
+    assertThrows(NoSuchElementException.class, () -> vec.iterator().next());
+  }
+
+  @Test
+  public void remove() {
+    var vec = new ShardedUnorderedVec<String>();
+    vec.add("A");
+    vec.add("B");
+
+    assertTrue(vec.remove("A"));
+    assertFalse(vec.remove("C"));
+    assertEquals(1, vec.size());
+  }
+
+  @Test
+  public void concurrentAdds() throws InterruptedException {
+    var vec = new ShardedUnorderedVec<Integer>();
+    var threads = new ArrayList<Thread>();
+    for (var t = 0; t < 8; t++) {
+      var base = t * 100_000;
+      threads.add(Thread.ofPlatform().start(() -> {
+        for (var i = 0; i < 100_000; i++) {
+          vec.add(base + i);
+        }
+      }));
+    }
+    for (var thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(800_000, vec.size());
+    var set = new HashSet<Integer>();
+    vec.forEach(set::add);
+    assertEquals(800_000, set.size());
+  }
+
+  @Test
+  public void removeFromAnotherThreadShard() throws InterruptedException {
+    var vec = new ShardedUnorderedVec<Integer>();
+    var threads = new ArrayList<Thread>();
+    for (var t = 0; t < 4; t++) {
+      var base = t * 100;
+      threads.add(Thread.ofPlatform().start(() -> IntStream.range(base, base + 100).forEach(vec::add)));
+    }
+    for (var thread : threads) {
+      thread.join();
+    }
+
+    for (var i = 0; i < 400; i += 2) {
+      assertTrue(vec.remove(i));
+    }
+    assertEquals(200, vec.size());
+    var set = new HashSet<Integer>();
+    vec.forEach(set::add);
+    assertEquals(IntStream.range(0, 400).filter(i -> i % 2 == 1).boxed().collect(HashSet::new, Set::add, Set::addAll), set);
+  }
+
+  @Test
+  public void contendedShardMovesTheThread() throws InterruptedException {
+    var vec = new ShardedUnorderedVec<String>(4);
+    var shard = vec.localShard();
+    var locked = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    // the holder gives up after a while, a thread that stays on its shard fails instead of hanging
+    var holder = CompletableFuture.runAsync(() -> {
+      vec.lockOf(shard).lock();
+      try {
+        locked.countDown();
+        release.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      } finally {
+        vec.lockOf(shard).unlock();
+      }
+    });
+    locked.await();
+    vec.add("A");
+    var moved = vec.localShard();
+    release.countDown();
+    holder.join();
+
+    assertNotEquals(shard, moved);
+    assertTrue(vec.remove("A"));
+    assertEquals(0, vec.size());
+  }
+
+  @Test
+  public void singleShardWaitsForTheLock() {
+    var vec = new ShardedUnorderedVec<String>(1);
+    vec.add("A");
+    vec.add("B");
+
+    assertEquals(0, vec.localShard());
+    assertEquals(2, vec.size());
+  }
+
+  @Test
+  public void preconditions() {
+    var vec = new ShardedUnorderedVec<String>();
+    assertAll(
+        () -> assertThrows(NullPointerException.class, () -> vec.add(null)),
+        () -> assertThrows(NullPointerException.class, () -> vec.remove(null)),
+        () -> assertThrows(IllegalArgumentException.class, () -> new ShardedUnorderedVec<String>(0)),
+        () -> assertThrows(IllegalArgumentException.class, () -> new ShardedUnorderedVec<String>(3))
+    );
+  }
+}
@@ -0,0 +1,315 @@
+package unorderedvec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+// keeps at most budget elements on the heap, the others are encoded in chunks appended to a temp file
+public final class SpillingUnorderedVec<E> implements Iterable<E>, AutoCloseable {
+    // removed elements of a chunk are tombstoned by their position in the chunk, one bit each
+    private static final class Chunk {
+        private final long position;
+        private final int length;
+        private final int count;
+        private long[] removed;
+
+        private Chunk(long position, int length, int count){
+            this.position = position;
+            this.length = length;
+            this.count = count;
+        }
+
+        private boolean isRemoved(int index){
+            return removed != null && (removed[index >>> 6] & (1L << index)) != 0;
+        }
+
+        private void remove(int index){
+            if(removed == null){
+                removed = new long[(count + 63) >>> 6];
+            }
+            removed[index >>> 6] |= 1L << index;
+        }
+    }
+
+    private final int budget;
+    private final Codec<E> codec;
+    private final Path directory;
+    private E[] elements;
+    private int size;
+    private ArrayList<Chunk> chunks = new ArrayList<>();
+    private long tombstoneCount;
+    private long spilled;
+    private FileChannel channel;
+    private long fileSize;
+    private boolean closed;
+
+    @SuppressWarnings("unchecked")
+    public SpillingUnorderedVec(int budget, Codec<E> codec, Path directory){
+        if(budget <= 0){
+            throw new IllegalArgumentException("budget <= 0");
+        }
+        this.budget = budget;
+        this.codec = Objects.requireNonNull(codec);
+        this.directory = Objects.requireNonNull(directory);
+        elements = (E[]) new Object[Math.min(budget, 16)];
+    }
+
+    public SpillingUnorderedVec(int budget, Codec<E> codec){
+        this(budget, codec, Path.of(System.getProperty("java.io.tmpdir")));
+    }
+
+    private void checkOpen(){
+        if(closed){
+            throw new IllegalStateException("closed");
+        }
+    }
+
+    // spills before inserting, so a failed spill leaves the vec unchanged and the add can be retried
+    public void add(E element){
+        Objects.requireNonNull(element);
+        checkOpen();
+        if(size == budget){
+            spill();
+        }
+        if(size == elements.length){
+            elements = Arrays.copyOf(elements, (int) Math.min(budget, elements.length * 2L));
+        }
+        elements[size++] = element;
+    }
+
+    private FileChannel createFile() throws IOException {
+        var file = Files.createTempFile(directory, "unorderedvec", ".spill");
+        return FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()){
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    // one chunk per spill, each element is stored as its length followed by its encoded bytes
+    private void spill(){
+        var encoded = new byte[size][];
+        var length = 0L;
+        for(var i = 0; i < size; i++){
+            encoded[i] = codec.encode(elements[i]);
+            length += Integer.BYTES + encoded[i].length;
+        }
+        if(length > Integer.MAX_VALUE){
+            throw new IllegalStateException("chunk too big " + length);
+        }
+        var buffer = ByteBuffer.allocate((int) length);
+        for(var bytes : encoded){
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        buffer.flip();
+        try {
+            if(channel == null){
+                channel = createFile();
+            }
+            write(channel, buffer, fileSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        chunks.add(new Chunk(fileSize, (int) length, size));
+        fileSize += length;
+        spilled += size;
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+
+    private ByteBuffer read(Chunk chunk){
+        var buffer = ByteBuffer.allocate(chunk.length);
+        try {
+            while(buffer.hasRemaining()){
+                if(channel.read(buffer, chunk.position + buffer.position()) == -1){
+                    throw new EOFException();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.flip();
+    }
+
+    private E decode(ByteBuffer buffer){
+        var bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return codec.decode(bytes);
+    }
+
+    private static void skip(ByteBuffer buffer){
+        var length = buffer.getInt();
+        buffer.position(buffer.position() + length);
+    }
+
+    public boolean remove(Object value){
+        Objects.requireNonNull(value);
+        checkOpen();
+        for(var i = 0; i < size; i++){
+            if(elements[i].equals(value)){
+                size--;
+                elements[i] = elements[size];
+                elements[size] = null;
+                return true;
+            }
+        }
+        if(spilled == tombstoneCount){
+            return false;
+        }
+        for(var chunk : chunks){
+            var buffer = read(chunk);
+            for(var index = 0; index < chunk.count; index++){
+                if(chunk.isRemoved(index)){
+                    skip(buffer);
+                    continue;
+                }
+                if(decode(buffer).equals(value)){
+                    chunk.remove(index);
+                    tombstoneCount++;
+                    compactIfNeeded();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // the tombstones count against the budget, the file is also rewritten when half of it is dead
+    private void compactIfNeeded(){
+        if(tombstoneCount < budget && tombstoneCount * 2 < spilled){
+            return;
+        }
+        try {
+            var compacted = createFile();
+            var newChunks = new ArrayList<Chunk>();
+            var position = 0L;
+            try {
+                for(var chunk : chunks){
+                    var buffer = read(chunk);
+                    var live = ByteBuffer.allocate(chunk.length);
+                    var count = 0;
+                    for(var index = 0; index < chunk.count; index++){
+                        var start = buffer.position();
+                        skip(buffer);
+                        if(!chunk.isRemoved(index)){
+                            live.put(buffer.duplicate().position(start).limit(buffer.position()));
+                            count++;
+                        }
+                    }
+                    if(count == 0){
+                        continue;
+                    }
+                    live.flip();
+                    var length = live.remaining();
+                    write(compacted, live, position);
+                    newChunks.add(new Chunk(position, length, count));
+                    position += length;
+                }
+            } catch (IOException | RuntimeException e) {
+                compacted.close();
+                throw e;
+            }
+            channel.close();
+            channel = compacted;
+            chunks = newChunks;
+            fileSize = position;
+            spilled -= tombstoneCount;
+            tombstoneCount = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long size(){
+        return size + spilled - tombstoneCount;
+    }
+
+    public long spilledBytes(){
+        return fileSize;
+    }
+
+    // the heap elements first, then the chunks are streamed back one at a time
+    @Override
+    public Iterator<E> iterator(){
+        checkOpen();
+        return new Iterator<>() {
+            private int index;
+            private int chunk;
+            private Chunk current;
+            private int position;
+            private ByteBuffer buffer;
+            private E next = advance();
+
+            private E advance(){
+                if(index < size){
+                    return elements[index++];
+                }
+                for(;;){
+                    if(current == null || position == current.count){
+                        if(chunk == chunks.size()){
+                            return null;
+                        }
+                        current = chunks.get(chunk++);
+                        buffer = read(current);
+                        position = 0;
+                        continue;
+                    }
+                    if(current.isRemoved(position++)){
+                        skip(buffer);
+                        continue;
+                    }
+                    return decode(buffer);
+                }
+            }
+
+            @Override
+            public boolean hasNext(){
+                return next != null;
+            }
+
+            @Override
+            public E next(){
+                if(next == null){
+                    throw new NoSuchElementException();
+                }
+                var element = next;
+                next = advance();
+                return element;
+            }
+        };
+    }
+
+    // deletes the spill file
+    @Override
+    public void close(){
+        if(closed){
+            return;
+        }
+        closed = true;
+        elements = null;
+        size = 0;
+        spilled = 0;
+        fileSize = 0;
+        chunks.clear();
+        tombstoneCount = 0;
+        if(channel != null){
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
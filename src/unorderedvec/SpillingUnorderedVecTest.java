@@ -0,0 +1,192 @@
+package unorderedvec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class SpillingUnorderedVecTest {
+  private static final Codec<Integer> INT_CODEC = Codec.of(
+      value -> ByteBuffer.allocate(Integer.BYTES).putInt(value).array(),
+      bytes -> ByteBuffer.wrap(bytes).getInt());
+
+  private static <E> HashMap<E, Integer> countsOf(Iterable<E> iterable) {
+    var counts = new HashMap<E, Integer>();
+    iterable.forEach(value -> counts.merge(value, 1, Integer::sum));
+    return counts;
+  }
+
+  private static long fileCount(Path directory) throws IOException {
+    try (var files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
+  @Test
+  public void staysInMemoryUnderBudget(@TempDir Path directory) throws IOException {
+    try (var vec = new SpillingUnorderedVec<>(100, INT_CODEC, directory)) {
+      IntStream.range(0, 99).forEach(vec::add);
+
+      assertEquals(99, vec.size());
+      assertEquals(0, vec.spilledBytes());
+      assertEquals(0, fileCount(directory));
+    }
+  }
+
+  @Test
+  public void spillsOverBudget(@TempDir Path directory) throws IOException {
+    try (var vec = new SpillingUnorderedVec<>(100, INT_CODEC, directory)) {
+      IntStream.range(0, 1_050).forEach(vec::add);
+
+      assertEquals(1_050, vec.size());
+      assertEquals(1_000 * 2 * Integer.BYTES, vec.spilledBytes());
+      var counts = countsOf(vec);
+      assertEquals(1_050, counts.size());
+      IntStream.range(0, 1_050).forEach(i -> assertEquals(1, counts.get(i)));
+    }
+    assertEquals(0, fileCount(directory));
+  }
+
+  @Test
+  public void closeReleasesEverything(@TempDir Path directory) {
+    var vec = new SpillingUnorderedVec<>(10, INT_CODEC, directory);
+    IntStream.range(0, 25).forEach(vec::add);
+    vec.close();
+
+    assertEquals(0, vec.size());
+    assertEquals(0, vec.spilledBytes());
+  }
+
+  @Test
+  public void removeFromMemoryAndFromChunks(@TempDir Path directory) {
+    try (var vec = new SpillingUnorderedVec<>(10, Codec.utf8(), directory)) {
+      IntStream.range(0, 25).forEach(i -> vec.add("v" + i % 5));
+
+      assertTrue(vec.remove("v1"));
+      assertEquals(24, vec.size());
+      for (var i = 0; i < 5; i++) {
+        assertTrue(vec.remove("v2"));
+      }
+      assertFalse(vec.remove("v2"));
+      assertFalse(vec.remove("v9"));
+      assertEquals(19, vec.size());
+
+      var counts = countsOf(vec);
+      assertNull(counts.get("v2"));
+      assertEquals(4, counts.get("v1"));
+      assertEquals(5, counts.get("v0"));
+      assertEquals(19, counts.values().stream().mapToInt(Integer::intValue).sum());
+    }
+  }
+
+  @Test
+  public void addAfterRemovingASpilledValue(@TempDir Path directory) {
+    try (var vec = new SpillingUnorderedVec<>(2, Codec.utf8(), directory)) {
+      vec.add("a");
+      vec.add("b");
+      vec.add("c");
+      assertTrue(vec.spilledBytes() > 0);
+      assertTrue(vec.remove("a"));
+      vec.add("a");
+
+      assertEquals(3, vec.size());
+      assertEquals(countsOf(List.of("a", "b", "c")), countsOf(vec));
+    }
+  }
+
+  @Test
+  public void removedSpilledValuesAreCompacted(@TempDir Path directory) {
+    try (var vec = new SpillingUnorderedVec<>(10, INT_CODEC, directory)) {
+      IntStream.range(0, 1_001).forEach(vec::add);
+      assertEquals(1_000 * 2 * Integer.BYTES, vec.spilledBytes());
+
+      IntStream.range(0, 9).forEach(i -> assertTrue(vec.remove(i)));
+      assertEquals(1_000 * 2 * Integer.BYTES, vec.spilledBytes());
+      assertTrue(vec.remove(9));
+      assertEquals(990 * 2 * Integer.BYTES, vec.spilledBytes());
+
+      IntStream.range(10, 600).forEach(i -> assertTrue(vec.remove(i)));
+      assertFalse(vec.remove(5));
+      assertEquals(401, vec.size());
+      assertEquals(400 * 2 * Integer.BYTES, vec.spilledBytes());
+      var counts = countsOf(vec);
+      assertEquals(401, counts.size());
+      IntStream.range(600, 1_001).forEach(i -> assertEquals(1, counts.get(i)));
+    }
+  }
+
+  @Test
+  public void failedSpillCanBeRetried(@TempDir Path directory) throws IOException {
+    var missing = directory.resolve("missing");
+    try (var vec = new SpillingUnorderedVec<>(4, INT_CODEC, missing)) {
+      IntStream.range(0, 4).forEach(vec::add);
+
+      assertThrows(UncheckedIOException.class, () -> vec.add(4));
+      assertEquals(4, vec.size());
+      assertEquals(0, vec.spilledBytes());
+
+      Files.createDirectory(missing);
+      IntStream.range(4, 10).forEach(vec::add);
+      assertEquals(10, vec.size());
+      var counts = countsOf(vec);
+      assertEquals(10, counts.size());
+      IntStream.range(0, 10).forEach(i -> assertEquals(1, counts.get(i)));
+    }
+  }
+
+  @Test
+  public void sizeMatchesIteration(@TempDir Path directory) {
+    try (var vec = new SpillingUnorderedVec<>(64, INT_CODEC, directory)) {
+      var random = new Random(0);
+      var model = new HashMap<Integer, Integer>();
+      for (var i = 0; i < 5_000; i++) {
+        var value = random.nextInt(100);
+        if (random.nextInt(3) == 0) {
+          assertEquals(model.containsKey(value), vec.remove(value));
+          model.computeIfPresent(value, (__, count) -> count == 1 ? null : count - 1);
+        } else {
+          vec.add(value);
+          model.merge(value, 1, Integer::sum);
+        }
+      }
+
+      assertEquals(model, countsOf(vec));
+      assertEquals(model.values().stream().mapToInt(Integer::intValue).sum(), vec.size());
+    }
+  }
+
+  @Test
+  public void closedVec(@TempDir Path directory) {
+    var vec = new SpillingUnorderedVec<>(4, INT_CODEC, directory);
+    vec.add(1);
+    vec.close();
+    vec.close();
+
+    assertAll(
+        () -> assertThrows(IllegalStateException.class, () -> vec.add(2)),
+        () -> assertThrows(IllegalStateException.class, () -> vec.remove(1)),
+        () -> assertThrows(IllegalStateException.class, vec::iterator)
+    );
+  }
+
+  @Test
+  public void preconditions(@TempDir Path directory) {
+    assertAll(
+        () -> assertThrows(IllegalArgumentException.class, () -> new SpillingUnorderedVec<>(0, INT_CODEC, directory)),
+        () -> assertThrows(NullPointerException.class, () -> new SpillingUnorderedVec<>(10, null, directory)),
+        () -> assertThrows(NullPointerException.class, () -> new SpillingUnorderedVec<>(10, INT_CODEC, null)),
+        () -> assertThrows(NullPointerException.class, () -> new SpillingUnorderedVec<>(10, INT_CODEC).add(null)),
+        () -> assertThrows(NullPointerException.class, () -> new SpillingUnorderedVec<>(10, INT_CODEC).remove(null))
+    );
+  }
+}
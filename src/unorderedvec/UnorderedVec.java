@@ -1,67 +1,1317 @@
 package unorderedvec;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public final class UnorderedVec<E> implements Iterable<E> {
+    private static final Object[] EMPTY = {};
+    private static final int FIRST_CAPACITY = 4;
+    // computed once, the field walk uses reflection
+    private static final long INSTANCE_BYTES = MemoryLayout.instanceBytes(UnorderedVec.class);
+
     private E[] elements;
     private int size = 0;
+    private int hash;
+    private long version;
+    private ChangeLog<E> changeLog;
+    private Index<?> indexes;
+    private Equivalence<? super E> equivalence;
+    private CountingBloomFilter filter;
+    // a publisher may still be reading the array, it must be copied before any write below the current size
+    private boolean shared;
 
     @SuppressWarnings("unchecked")
     public UnorderedVec(){
-        elements = (E[]) new Object[16];
+        elements = (E[]) EMPTY;
+    }
+
+    public static <E> UnorderedVec<E> identity(){
+        return withEquivalence(Equivalence.identity());
+    }
+
+    // lookups (remove, batch removals, contentEquals) use the equivalence, equals and hashCode of the vec still use equals
+    public static <E> UnorderedVec<E> withEquivalence(Equivalence<? super E> equivalence){
+        Objects.requireNonNull(equivalence);
+        var vec = new UnorderedVec<E>();
+        vec.equivalence = equivalence;
+        return vec;
     }
 
     public void add(E element){
         Objects.requireNonNull(element);
-        if(size >= elements.length){
-            if(elements.length == Integer.MAX_VALUE - 16){
-                return;
+        ensureCapacity(size + 1L);
+        if(size == elements.length){
+            return;
+        }
+        append(element);
+    }
+
+    private void ensureCapacity(long minCapacity){
+        if(minCapacity > elements.length){
+            var capacity = (int) Math.min(Integer.MAX_VALUE - 16, Math.max(Math.max(elements.length * 2L, minCapacity), FIRST_CAPACITY));
+            if(capacity != elements.length){
+                elements = Arrays.copyOf(elements, capacity);
+                shared = false;
             }
-            var i = elements.length * 2;
-            if(i < 0){
-                i = Integer.MAX_VALUE - 16;
+        }
+    }
+
+    private void append(E element){
+        for(var index = indexes; index != null; index = index.next){
+            try {
+                index.added(size, element);
+            } catch (RuntimeException | Error e) {
+                // a key extractor failed, the indexes already updated forget the slot so the vec is left unchanged
+                for(var updated = indexes; updated != index; updated = updated.next){
+                    updated.removed(size, size);
+                }
+                throw e;
             }
-            elements = Arrays.copyOf(elements, i);
         }
         elements[size] = element;
         size++;
+        if(filter != null){
+            filter.add(hash(element));
+            if(filter.isFull()){
+                rebuildFilter(filter.capacity() * 2, filter.falsePositiveRate());
+            }
+        }
+        hash = 0;
+        version++;
+        if(changeLog != null){
+            changeLog.record(version, element, true);
+        }
+    }
+
+    // appends all the elements of other, a single arraycopy when no index, change log or filter needs to see each element
+    private int appendAll(UnorderedVec<? extends E> other){
+        ensureCapacity(size + (long) other.size);
+        var count = Math.min(other.size, elements.length - size);
+        if(count == 0){
+            return 0;
+        }
+        if(hasHooks()){
+            for(var i = 0; i < count; i++){
+                append(other.elements[i]);
+            }
+            return count;
+        }
+        System.arraycopy(other.elements, 0, elements, size, count);
+        size += count;
+        hash = 0;
+        version++;
+        return count;
+    }
+
+    private boolean hasHooks(){
+        return indexes != null || changeLog != null || filter != null;
+    }
+
+    // the partial vecs are confined to one thread each, so the collector is not CONCURRENT
+    public static <E> Collector<E, ?, UnorderedVec<E>> toUnorderedVec(){
+        return Collector.of(UnorderedVec::new, UnorderedVec::add, (vec1, vec2) -> {
+            if(vec1.size < vec2.size){
+                vec2.absorb(vec1);
+                return vec2;
+            }
+            vec1.absorb(vec2);
+            return vec1;
+        }, Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    // moves all the elements of other in this vec, the array of other is reused as is when this vec is empty
+    public void absorb(UnorderedVec<? extends E> other){
+        Objects.requireNonNull(other);
+        if(other == this){
+            throw new IllegalArgumentException("a vec can not absorb itself");
+        }
+        if(other.size == 0){
+            return;
+        }
+        if(size == 0 && !hasHooks() && !other.hasHooks()){
+            elements = other.elements;
+            shared = other.shared;
+            size = other.size;
+            hash = 0;
+            version++;
+            // the source only drops its reference to the array
+            other.removeFirst(other.size);
+            return;
+        }
+        other.removeFirst(appendAll(other));
+    }
+
+    // removes the elements in [0, count) without per element work when possible
+    @SuppressWarnings("unchecked")
+    private void removeFirst(int count){
+        if(count == 0){
+            return;
+        }
+        if(hasHooks()){
+            // from the end so the elements swapped in are never the ones to remove
+            for(var i = count - 1; i >= 0; i--){
+                removeAt(i);
+            }
+            return;
+        }
+        if(count == size){
+            elements = (E[]) EMPTY;
+            shared = false;
+        } else {
+            unshare();
+            System.arraycopy(elements, count, elements, 0, size - count);
+            Arrays.fill(elements, size - count, size, null);
+        }
+        size -= count;
+        hash = 0;
+        version++;
+    }
+
+    // read-only views of n ranges of about the same size, only valid until the next mutation of the vec
+    public List<List<E>> splitInto(int n){
+        if(n <= 0){
+            throw new IllegalArgumentException("n <= 0");
+        }
+        var parts = new ArrayList<List<E>>(n);
+        for(var part = 0; part < n; part++){
+            parts.add(slice((int) ((long) size * part / n), (int) ((long) size * (part + 1) / n)));
+        }
+        return parts;
+    }
+
+    public boolean contains(Object value){
+        Objects.requireNonNull(value);
+        return indexOf(value) != -1;
     }
 
     public boolean remove(Object value){
         Objects.requireNonNull(value);
-        for(var i = 0; i < size; i++){
-            if (elements[i].equals(value)) {
-                if(i == size - 1){
-                    elements[size - 1] = null;
-                    size--;
-                    return true;
+        var index = indexOf(value);
+        if(index == -1){
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    // with a custom equivalence, value is expected to be an E
+    @SuppressWarnings("unchecked")
+    private int hash(Object value){
+        return equivalence == null ? value.hashCode() : equivalence.hash((E) value);
+    }
+
+    // a definite miss of the membership filter skips the scan
+    private int indexOf(Object value){
+        var filter = this.filter;
+        if(filter == null){
+            return scan(value);
+        }
+        filter.lookups++;
+        if(!filter.mightContain(hash(value))){
+            filter.filteredMisses++;
+            return -1;
+        }
+        var index = scan(value);
+        if(index == -1){
+            filter.falsePositives++;
+        }
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int scan(Object value){
+        var equivalence = this.equivalence;
+        if(equivalence == null){
+            for(var i = 0; i < size; i++){
+                if (elements[i].equals(value)) {
+                    return i;
                 }
-                var lastElement = elements[size - 1];
-                elements[size - 1] = null;
-                elements[i] = lastElement;
-                size--;
-                return true;
             }
+            return -1;
+        }
+        for(var i = 0; i < size; i++){
+            if(equivalence.equivalent(elements[i], (E) value)){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public record MembershipStats(long lookups, long filteredMisses, long falsePositives, double expectedFalsePositiveRate) {
+        // among the lookups of absent values, the ones the filter did not catch
+        public double observedFalsePositiveRate(){
+            var misses = filteredMisses + falsePositives;
+            return misses == 0 ? 0 : (double) falsePositives / misses;
+        }
+    }
+
+    // the filter grows with the vec, it is rebuilt twice as large when it holds more than its expected size
+    public void enableMembershipFilter(int expectedSize, double falsePositiveRate){
+        if(expectedSize < 0){
+            throw new IllegalArgumentException("expectedSize < 0");
+        }
+        rebuildFilter(Math.max(expectedSize, size), falsePositiveRate);
+    }
+
+    public void disableMembershipFilter(){
+        filter = null;
+    }
+
+    public MembershipStats membershipStats(){
+        var filter = this.filter;
+        if(filter == null){
+            throw new IllegalStateException("no membership filter");
+        }
+        return new MembershipStats(filter.lookups, filter.filteredMisses, filter.falsePositives, filter.falsePositiveRate());
+    }
+
+    private void rebuildFilter(int capacity, double falsePositiveRate){
+        var filter = new CountingBloomFilter(capacity, falsePositiveRate);
+        if(this.filter != null){
+            filter.copyStatisticsFrom(this.filter);
+        }
+        for(var i = 0; i < size; i++){
+            filter.add(hash(elements[i]));
+        }
+        this.filter = filter;
+    }
+
+    private record Key<E>(E value, Equivalence<? super E> equivalence) {
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean equals(Object o){
+            return o instanceof Key<?> key && equivalence.equivalent(value, (E) key.value);
+        }
+
+        @Override
+        public int hashCode(){
+            return equivalence.hash(value);
+        }
+    }
+
+    // the key to use in a hash table so it follows the equivalence of the vec
+    @SuppressWarnings("unchecked")
+    private Object key(Object value){
+        return equivalence == null ? value : new Key<>((E) value, equivalence);
+    }
+
+    private void unshare(){
+        if(shared){
+            elements = Arrays.copyOf(elements, elements.length);
+            shared = false;
+        }
+    }
+
+    private void removeAt(int index){
+        unshare();
+        var last = size - 1;
+        for(var i = indexes; i != null; i = i.next){
+            i.removed(index, last);
+        }
+        var element = elements[index];
+        if(filter != null){
+            filter.remove(hash(element));
+        }
+        elements[index] = elements[last];
+        elements[last] = null;
+        size = last;
+        hash = 0;
+        version++;
+        if(changeLog != null){
+            changeLog.record(version, element, false);
         }
-        return false;
     }
 
     public int size(){
         return size;
     }
 
+    @SuppressWarnings("unchecked")
+    public void trimToSize(){
+        if(size != elements.length){
+            elements = size == 0 ? (E[]) EMPTY : Arrays.copyOf(elements, size);
+        }
+    }
+
+    public record Footprint(int size, int capacity, long shallowBytes, long wastedBytes, OptionalLong deepBytes) {
+        public Footprint {
+            Objects.requireNonNull(deepBytes);
+        }
+    }
+
+    public Footprint memoryFootprint(){
+        var capacity = elements.length;
+        // the empty array is shared by all the vecs
+        var arrayBytes = elements == EMPTY ? 0 : MemoryLayout.referenceArrayBytes(capacity);
+        var shallowBytes = INSTANCE_BYTES + arrayBytes;
+        var wastedBytes = (long) (capacity - size) * MemoryLayout.referenceSize();
+        return new Footprint(size, capacity, shallowBytes, wastedBytes, OptionalLong.empty());
+    }
+
+    public Footprint memoryFootprint(ToLongFunction<? super E> sizer){
+        Objects.requireNonNull(sizer);
+        var footprint = memoryFootprint();
+        var deepBytes = footprint.shallowBytes();
+        for(var i = 0; i < size; i++){
+            deepBytes += sizer.applyAsLong(elements[i]);
+        }
+        return new Footprint(footprint.size(), footprint.capacity(), footprint.shallowBytes(), footprint.wastedBytes(), OptionalLong.of(deepBytes));
+    }
+
+    public record Changes<E>(long version, List<E> added, List<E> removed, boolean resync) {
+        public Changes {
+            added = List.copyOf(added);
+            removed = List.copyOf(removed);
+        }
+    }
+
+    public long version(){
+        return version;
+    }
+
+    public void trackChanges(int capacity){
+        changeLog = new ChangeLog<>(capacity, version);
+    }
+
+    public Changes<E> changesSince(long version){
+        if(changeLog == null){
+            throw new IllegalStateException("changes are not tracked");
+        }
+        if(version < 0 || version > this.version){
+            throw new IllegalArgumentException("unknown version " + version);
+        }
+        var changes = changeLog.changesSince(version);
+        if(changes == null){
+            return new Changes<>(this.version, List.of(), List.of(), true);
+        }
+        return changes;
+    }
+
+    // by default 4 slices per core, enough for CPU-bound work,
+    // for blocking work on virtual threads pass a bigger slice count (up to size() for one task per element)
+    private static int defaultSlices(){
+        return Runtime.getRuntime().availableProcessors() * 4;
+    }
+
+    public void parallelForEach(Consumer<? super E> action, Executor executor){
+        parallelForEach(action, executor, defaultSlices());
+    }
+
+    public void parallelForEach(Consumer<? super E> action, Executor executor, int slices){
+        Objects.requireNonNull(action);
+        Objects.requireNonNull(executor);
+        checkSlices(slices);
+        var elements = this.elements;
+        forEachSlice(size, slices, executor, (from, to) -> {
+            for(var i = from; i < to; i++){
+                action.accept(elements[i]);
+            }
+        });
+    }
+
+    public boolean parallelRemoveIf(Predicate<? super E> filter){
+        return parallelRemoveIf(filter, ForkJoinPool.commonPool());
+    }
+
+    public boolean parallelRemoveIf(Predicate<? super E> filter, Executor executor){
+        return parallelRemoveIf(filter, executor, defaultSlices());
+    }
+
+    public boolean parallelRemoveIf(Predicate<? super E> filter, Executor executor, int slices){
+        Objects.requireNonNull(filter);
+        Objects.requireNonNull(executor);
+        checkSlices(slices);
+        var elements = this.elements;
+        var removed = new boolean[size];
+        forEachSlice(size, slices, executor, (from, to) -> {
+            for(var i = from; i < to; i++){
+                removed[i] = filter.test(elements[i]);
+            }
+        });
+        // single swap-from-tail compaction, the marks follow the elements they describe
+        var changed = false;
+        for(var i = 0; i < size;){
+            if(removed[i]){
+                removeAt(i);
+                removed[i] = removed[size];
+                changed = true;
+            } else {
+                i++;
+            }
+        }
+        return changed;
+    }
+
+    @FunctionalInterface
+    private interface SliceTask {
+        void run(int from, int to);
+    }
+
+    private static void checkSlices(int slices){
+        if(slices <= 0){
+            throw new IllegalArgumentException("slices <= 0");
+        }
+    }
+
+    private static void forEachSlice(int size, int maxSlices, Executor executor, SliceTask task){
+        if(size == 0){
+            return;
+        }
+        var slices = Math.min(size, maxSlices);
+        var futures = new CompletableFuture<?>[slices];
+        for(var slice = 0; slice < slices; slice++){
+            var from = (int) ((long) size * slice / slices);
+            var to = (int) ((long) size * (slice + 1) / slices);
+            futures[slice] = CompletableFuture.runAsync(() -> task.run(from, to), executor);
+        }
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            var cause = e.getCause();
+            if(cause instanceof RuntimeException runtimeException){
+                throw runtimeException;
+            }
+            if(cause instanceof Error error){
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    // reordering is not a change for changesSince, only the cached hash depends on the order
+    private void swap(int i, int j){
+        if(i == j){
+            return;
+        }
+        unshare();
+        for(var index = indexes; index != null; index = index.next){
+            index.swapped(i, j);
+        }
+        var element = elements[i];
+        elements[i] = elements[j];
+        elements[j] = element;
+        hash = 0;
+    }
+
+    // moves the matching elements first, each element is tested once
+    public int partition(Predicate<? super E> filter){
+        Objects.requireNonNull(filter);
+        var i = 0;
+        var j = size - 1;
+        while(i <= j){
+            if(filter.test(elements[i])){
+                i++;
+            } else {
+                swap(i, j);
+                j--;
+            }
+        }
+        return i;
+    }
+
+    // read-only view, only valid until the next mutation of the vec
+    public List<E> slice(int from, int to){
+        Objects.checkFromToIndex(from, to, size);
+        return range(elements, from, to);
+    }
+
+    private static <E> List<E> range(E[] elements, int from, int to){
+        return new AbstractList<>() {
+            @Override
+            public E get(int index){
+                return elements[from + Objects.checkIndex(index, to - from)];
+            }
+
+            @Override
+            public int size(){
+                return to - from;
+            }
+        };
+    }
+
+    // quickselect, the k greatest elements end up first in no particular order
+    public List<E> selectTopK(int k, Comparator<? super E> comparator){
+        Objects.checkFromToIndex(0, k, size);
+        Objects.requireNonNull(comparator);
+        var random = ThreadLocalRandom.current();
+        var low = 0;
+        var high = size - 1;
+        while(low < high){
+            var pivot = elements[random.nextInt(low, high + 1)];
+            // three-way partition: [low, greater) > pivot, [greater, i) == pivot, (lower, high] < pivot
+            var greater = low;
+            var lower = high;
+            for(var i = low; i <= lower;){
+                var comparison = comparator.compare(elements[i], pivot);
+                if(comparison > 0){
+                    swap(greater++, i++);
+                } else if(comparison < 0){
+                    swap(i, lower--);
+                } else {
+                    i++;
+                }
+            }
+            if(k <= greater){
+                high = greater - 1;
+            } else if(k > lower + 1){
+                low = lower + 1;
+            } else {
+                break;
+            }
+        }
+        return slice(0, k);
+    }
+
+    public Optional<E> min(Comparator<? super E> comparator){
+        return max(comparator.reversed());
+    }
+
+    public Optional<E> max(Comparator<? super E> comparator){
+        Objects.requireNonNull(comparator);
+        if(size == 0){
+            return Optional.empty();
+        }
+        var max = elements[0];
+        for(var i = 1; i < size; i++){
+            var element = elements[i];
+            if(comparator.compare(element, max) > 0){
+                max = element;
+            }
+        }
+        return Optional.of(max);
+    }
+
+    public View<E> view(){
+        return new View<>(null, true);
+    }
+
+    // a live view over the elements, filter and map are fused in a single function evaluated during the traversal
+    public final class View<T> implements Iterable<T> {
+        // null for the identity, returns null for the elements that are filtered out
+        private final Function<? super E, ? extends T> stage;
+        private final boolean exact;
+
+        private View(Function<? super E, ? extends T> stage, boolean exact){
+            this.stage = stage;
+            this.exact = exact;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T apply(E element){
+            return stage == null ? (T) element : stage.apply(element);
+        }
+
+        public View<T> filter(Predicate<? super T> filter){
+            Objects.requireNonNull(filter);
+            return new View<>(element -> {
+                var value = apply(element);
+                return value != null && filter.test(value) ? value : null;
+            }, false);
+        }
+
+        public <R> View<R> map(Function<? super T, ? extends R> mapper){
+            Objects.requireNonNull(mapper);
+            return new View<>(element -> {
+                var value = apply(element);
+                return value == null ? null : Objects.requireNonNull(mapper.apply(value));
+            }, exact);
+        }
+
+        // exact unless a filter has been applied, in that case an upper bound
+        public long estimateSize(){
+            return size;
+        }
+
+        public long count(){
+            if(exact){
+                return size;
+            }
+            var count = 0L;
+            for(var i = 0; i < size; i++){
+                if(apply(elements[i]) != null){
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public void forEach(Consumer<? super T> action){
+            Objects.requireNonNull(action);
+            for(var i = 0; i < size; i++){
+                var value = apply(elements[i]);
+                if(value != null){
+                    action.accept(value);
+                }
+            }
+        }
+
+        @Override
+        public Iterator<T> iterator(){
+            return new Iterator<>() {
+                private int index;
+                private T next = advance();
+
+                private T advance(){
+                    while(index < size){
+                        var value = apply(elements[index++]);
+                        if(value != null){
+                            return value;
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext(){
+                    return next != null;
+                }
+
+                @Override
+                public T next(){
+                    if(next == null){
+                        throw new NoSuchElementException();
+                    }
+                    var value = next;
+                    next = advance();
+                    return value;
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<T> spliterator(){
+            return new ViewSpliterator(elements, 0, size);
+        }
+
+        public Stream<T> stream(){
+            return StreamSupport.stream(spliterator(), false);
+        }
+
+        public Stream<T> parallelStream(){
+            return StreamSupport.stream(spliterator(), true);
+        }
+
+        // the only operation of a view that allocates, the result is pre-sized with the estimate
+        public UnorderedVec<T> toUnorderedVec(){
+            var result = new UnorderedVec<T>();
+            result.ensureCapacity(size);
+            for(var i = 0; i < size; i++){
+                var value = apply(elements[i]);
+                if(value != null){
+                    result.append(value);
+                }
+            }
+            return result;
+        }
+
+        private final class ViewSpliterator implements Spliterator<T> {
+            private final E[] elements;
+            private int from;
+            private final int to;
+
+            private ViewSpliterator(E[] elements, int from, int to){
+                this.elements = elements;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action){
+                Objects.requireNonNull(action);
+                while(from < to){
+                    var value = apply(elements[from++]);
+                    if(value != null){
+                        action.accept(value);
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public void forEachRemaining(Consumer<? super T> action){
+                Objects.requireNonNull(action);
+                var to = this.to;
+                for(var i = from; i < to; i++){
+                    var value = apply(elements[i]);
+                    if(value != null){
+                        action.accept(value);
+                    }
+                }
+                from = to;
+            }
+
+            @Override
+            public Spliterator<T> trySplit(){
+                var middle = (from + to) >>> 1;
+                if(middle - from < 1_024){
+                    return null;
+                }
+                var prefix = new ViewSpliterator(elements, from, middle);
+                from = middle;
+                return prefix;
+            }
+
+            @Override
+            public long estimateSize(){
+                return to - from;
+            }
+
+            @Override
+            public int characteristics(){
+                return exact ? Spliterator.NONNULL | Spliterator.SIZED | Spliterator.SUBSIZED : Spliterator.NONNULL;
+            }
+        }
+    }
+
+    // each subscriber receives the elements present when it subscribed, in batches sliced from the array without copying it,
+    // the vec copies its array once if it is mutated while it is shared
+    public Flow.Publisher<List<E>> publisher(int batchSize, Executor executor){
+        if(batchSize <= 0){
+            throw new IllegalArgumentException("batchSize <= 0");
+        }
+        Objects.requireNonNull(executor);
+        return subscriber -> {
+            Objects.requireNonNull(subscriber);
+            shared = true;
+            var subscription = new Emission<>(subscriber, elements, size, batchSize, executor);
+            subscriber.onSubscribe(subscription);
+            subscription.schedule();
+        };
+    }
+
+    // the emission loop is run by at most one task at a time, wip counts the pending signals
+    private static final class Emission<E> implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super List<E>> subscriber;
+        private final E[] elements;
+        private final int size;
+        private final int batchSize;
+        private final Executor executor;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean done;
+        private Throwable error;
+        private int position;
+
+        private Emission(Flow.Subscriber<? super List<E>> subscriber, E[] elements, int size, int batchSize, Executor executor){
+            this.subscriber = subscriber;
+            this.elements = elements;
+            this.size = size;
+            this.batchSize = batchSize;
+            this.executor = executor;
+        }
+
+        @Override
+        public void request(long n){
+            if(n <= 0){
+                error = new IllegalArgumentException("non-positive request " + n);
+            } else {
+                requested.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel(){
+            done = true;
+        }
+
+        private void schedule(){
+            if(wip.getAndIncrement() == 0){
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    done = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void run(){
+            var missed = 1;
+            do {
+                if(done){
+                    return;
+                }
+                if(error != null){
+                    done = true;
+                    subscriber.onError(error);
+                    return;
+                }
+                var requested = this.requested.get();
+                var emitted = 0L;
+                while(emitted != requested && position < size && !done){
+                    var to = (int) Math.min(size, (long) position + batchSize);
+                    subscriber.onNext(range(elements, position, to));
+                    position = to;
+                    emitted++;
+                }
+                if(position == size && !done){
+                    done = true;
+                    subscriber.onComplete();
+                    return;
+                }
+                if(emitted != 0 && requested != Long.MAX_VALUE){
+                    this.requested.addAndGet(-emitted);
+                }
+                missed = wip.addAndGet(-missed);
+            } while(missed != 0);
+        }
+    }
+
+    public Batch batch(){
+        return new Batch();
+    }
+
+    public final class Batch {
+        private final ArrayList<E> additions = new ArrayList<>();
+        private final HashMap<Object, Integer> removals = new HashMap<>();
+
+        private Batch(){
+        }
+
+        public Batch add(E element){
+            Objects.requireNonNull(element);
+            additions.add(element);
+            return this;
+        }
+
+        public Batch remove(Object value){
+            Objects.requireNonNull(value);
+            removals.merge(key(value), 1, Integer::sum);
+            return this;
+        }
+
+        // removals only see the elements present before the batch, then additions are appended
+        public boolean apply(){
+            var changed = false;
+            for(var i = 0; i < size && !removals.isEmpty();){
+                var key = key(elements[i]);
+                var count = removals.get(key);
+                if(count == null){
+                    i++;
+                    continue;
+                }
+                if(count == 1){
+                    removals.remove(key);
+                } else {
+                    removals.put(key, count - 1);
+                }
+                removeAt(i);
+                changed = true;
+            }
+            removals.clear();
+            ensureCapacity(size + (long) additions.size());
+            var count = Math.min(additions.size(), elements.length - size);
+            for(var i = 0; i < count; i++){
+                append(additions.get(i));
+            }
+            additions.clear();
+            return changed || count != 0;
+        }
+    }
+
+    public enum Multiplicity { SET, MULTISET }
+
+    // for a key seen a times in this vec and b times in the other, how many copies to keep and to add
+    private enum Operation {
+        INTERSECT {
+            @Override
+            int keep(int a, int b){
+                return Math.min(a, b);
+            }
+
+            @Override
+            int add(int a, int b){
+                return 0;
+            }
+        },
+        UNION {
+            @Override
+            int keep(int a, int b){
+                return a;
+            }
+
+            @Override
+            int add(int a, int b){
+                return Math.max(b - a, 0);
+            }
+        },
+        DIFFERENCE {
+            @Override
+            int keep(int a, int b){
+                return Math.max(a - b, 0);
+            }
+
+            @Override
+            int add(int a, int b){
+                return 0;
+            }
+        },
+        SYMMETRIC_DIFFERENCE {
+            @Override
+            int keep(int a, int b){
+                return Math.max(a - b, 0);
+            }
+
+            @Override
+            int add(int a, int b){
+                return Math.max(b - a, 0);
+            }
+        };
+
+        abstract int keep(int a, int b);
+
+        abstract int add(int a, int b);
+    }
+
+    private static final class Tally<E> {
+        private int a;
+        private int b;
+        private int kept;
+        private E sample;
+    }
+
+    public UnorderedVec<E> intersect(UnorderedVec<? extends E> other, Multiplicity multiplicity){
+        return copy().combine(other, multiplicity, Operation.INTERSECT);
+    }
+
+    public UnorderedVec<E> union(UnorderedVec<? extends E> other, Multiplicity multiplicity){
+        return copy().combine(other, multiplicity, Operation.UNION);
+    }
+
+    public UnorderedVec<E> difference(UnorderedVec<? extends E> other, Multiplicity multiplicity){
+        return copy().combine(other, multiplicity, Operation.DIFFERENCE);
+    }
+
+    public UnorderedVec<E> symmetricDifference(UnorderedVec<? extends E> other, Multiplicity multiplicity){
+        return copy().combine(other, multiplicity, Operation.SYMMETRIC_DIFFERENCE);
+    }
+
+    public boolean intersectInPlace(UnorderedVec<? extends E> other, Multiplicity multiplicity){
+        var version = this.version;
+        return combine(other, multiplicity, Operation.INTERSECT).version != version;
+    }
+
+    public boolean unionInPlace(UnorderedVec<? extends E> other, Multiplicity multiplicity){
+        var version = this.version;
+        return combine(other, multiplicity, Operation.UNION).version != version;
+    }
+
+    public boolean differenceInPlace(UnorderedVec<? extends E> other, Multiplicity multiplicity){
+        var version = this.version;
+        return combine(other, multiplicity, Operation.DIFFERENCE).version != version;
+    }
+
+    public boolean symmetricDifferenceInPlace(UnorderedVec<? extends E> other, Multiplicity multiplicity){
+        var version = this.version;
+        return combine(other, multiplicity, Operation.SYMMETRIC_DIFFERENCE).version != version;
+    }
+
+    private UnorderedVec<E> copy(){
+        var copy = new UnorderedVec<E>();
+        copy.equivalence = equivalence;
+        copy.appendAll(this);
+        return copy;
+    }
+
+    // keys are hashed with the equivalence of this vec, the transient table only covers the smaller operand
+    // (plus, for a set or when this vec is the smaller one, the keys that end up in the result)
+    private UnorderedVec<E> combine(UnorderedVec<? extends E> other, Multiplicity multiplicity, Operation operation){
+        Objects.requireNonNull(other);
+        Objects.requireNonNull(multiplicity);
+        if(other == this){
+            other = copy();
+        }
+        var table = new HashMap<Object, Tally<E>>();
+        if(multiplicity == Multiplicity.MULTISET && other.size < size){
+            for(var i = 0; i < other.size; i++){
+                var element = other.elements[i];
+                var tally = table.computeIfAbsent(key(element), __ -> new Tally<>());
+                tally.b++;
+                tally.sample = element;
+            }
+            // the elements of this vec are streamed, an occurrence is kept if keeping it is still within the count
+            for(var i = 0; i < size;){
+                var tally = table.get(key(elements[i]));
+                var b = tally == null ? 0 : tally.b;
+                var seen = tally == null ? 1 : ++tally.a;
+                if(operation.keep(seen, b) > operation.keep(seen - 1, b)){
+                    i++;
+                } else {
+                    removeAt(i);
+                }
+            }
+            for(var tally : table.values()){
+                for(var count = operation.add(tally.a, tally.b); count > 0; count--){
+                    add(tally.sample);
+                }
+            }
+            return this;
+        }
+        for(var i = 0; i < size; i++){
+            table.computeIfAbsent(key(elements[i]), __ -> new Tally<>()).a++;
+        }
+        var addsNewKeys = operation.add(0, 1) > 0;
+        for(var i = 0; i < other.size; i++){
+            var element = other.elements[i];
+            var key = key(element);
+            var tally = addsNewKeys ? table.computeIfAbsent(key, __ -> new Tally<>()) : table.get(key);
+            if(tally != null){
+                tally.b++;
+                if(tally.sample == null){
+                    tally.sample = element;
+                }
+            }
+        }
+        if(multiplicity == Multiplicity.SET){
+            for(var tally : table.values()){
+                tally.a = Math.min(tally.a, 1);
+                tally.b = Math.min(tally.b, 1);
+            }
+        }
+        for(var i = 0; i < size;){
+            var tally = table.get(key(elements[i]));
+            if(tally.kept < operation.keep(tally.a, tally.b)){
+                tally.kept++;
+                i++;
+            } else {
+                removeAt(i);
+            }
+        }
+        for(var tally : table.values()){
+            for(var count = operation.add(tally.a, tally.b); count > 0; count--){
+                add(tally.sample);
+            }
+        }
+        return this;
+    }
+
+    public <K> Index<K> index(Function<? super E, ? extends K> keyExtractor){
+        return register(new Index<>(keyExtractor, new HashMap<>()));
+    }
+
+    public <K> SortedIndex<K> sortedIndex(Function<? super E, ? extends K> keyExtractor, Comparator<? super K> comparator){
+        return register(new SortedIndex<>(keyExtractor, new TreeMap<>(comparator)));
+    }
+
+    private <I extends Index<?>> I register(I index){
+        Index<?> registered = index;
+        for(var i = 0; i < size; i++){
+            registered.added(i, elements[i]);
+        }
+        registered.next = indexes;
+        indexes = registered;
+        return index;
+    }
+
+    // the slots of the elements sharing a key, removal swaps the last slot in like the vec does
+    private static final class Slots {
+        private int[] slots = new int[2];
+        private int size;
+    }
+
+    public class Index<K> {
+        private final Function<? super E, ? extends K> keyExtractor;
+        final Map<K, Slots> map;
+        private Object[] keys = new Object[0];
+        private int[] positions = new int[0];
+        private Index<?> next;
+
+        private Index(Function<? super E, ? extends K> keyExtractor, Map<K, Slots> map){
+            this.keyExtractor = Objects.requireNonNull(keyExtractor);
+            this.map = map;
+        }
+
+        private void added(int slot, E element){
+            var key = keyExtractor.apply(element);
+            var slots = map.computeIfAbsent(key, __ -> new Slots());
+            if(slots.size == slots.slots.length){
+                slots.slots = Arrays.copyOf(slots.slots, slots.size * 2);
+            }
+            if(slot >= keys.length){
+                var capacity = Math.max(slot + 1, keys.length * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                positions = Arrays.copyOf(positions, capacity);
+            }
+            slots.slots[slots.size] = slot;
+            keys[slot] = key;
+            positions[slot] = slots.size;
+            slots.size++;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void swapped(int i, int j){
+            var key = keys[i];
+            keys[i] = keys[j];
+            keys[j] = key;
+            var position = positions[i];
+            positions[i] = positions[j];
+            positions[j] = position;
+            map.get((K) keys[i]).slots[positions[i]] = i;
+            map.get((K) keys[j]).slots[positions[j]] = j;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void removed(int slot, int last){
+            var key = (K) keys[slot];
+            var slots = map.get(key);
+            var position = positions[slot];
+            var moved = slots.slots[--slots.size];
+            slots.slots[position] = moved;
+            positions[moved] = position;
+            if(slots.size == 0){
+                map.remove(key);
+            }
+            if(slot != last){
+                // the last element of the vec takes the place of the removed one
+                var lastSlots = map.get((K) keys[last]);
+                lastSlots.slots[positions[last]] = slot;
+                keys[slot] = keys[last];
+                positions[slot] = positions[last];
+            }
+            keys[last] = null;
+        }
+
+        UnorderedVec<E> collect(Slots slots, UnorderedVec<E> result){
+            for(var i = 0; i < slots.size; i++){
+                result.add(elements[slots.slots[i]]);
+            }
+            return result;
+        }
+
+        public UnorderedVec<E> lookup(Object key){
+            var slots = map.get(key);
+            return slots == null ? new UnorderedVec<>() : collect(slots, new UnorderedVec<>());
+        }
+
+        public int count(Object key){
+            var slots = map.get(key);
+            return slots == null ? 0 : slots.size;
+        }
+    }
+
+    public final class SortedIndex<K> extends Index<K> {
+        private SortedIndex(Function<? super E, ? extends K> keyExtractor, TreeMap<K, Slots> map){
+            super(keyExtractor, map);
+        }
+
+        // elements whose key is in [from, to)
+        public UnorderedVec<E> range(K from, K to){
+            var result = new UnorderedVec<E>();
+            for(var slots : ((TreeMap<K, Slots>) map).subMap(from, true, to, false).values()){
+                collect(slots, result);
+            }
+            return result;
+        }
+    }
+
+    // compares as multisets using the equivalence of this vec
+    public boolean contentEquals(UnorderedVec<?> other){
+        Objects.requireNonNull(other);
+        if(this == other){
+            return true;
+        }
+        if(size != other.size){
+            return false;
+        }
+        var counts = new HashMap<Object, Integer>();
+        for(var i = 0; i < size; i++){
+            counts.merge(key(elements[i]), 1, Integer::sum);
+        }
+        for(var i = 0; i < other.size; i++){
+            var key = key(other.elements[i]);
+            var count = counts.get(key);
+            if(count == null){
+                return false;
+            }
+            if(count == 1){
+                counts.remove(key);
+            } else {
+                counts.put(key, count - 1);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o){
+        if(this == o){
+            return true;
+        }
+        if(!(o instanceof UnorderedVec<?> other) || size != other.size){
+            return false;
+        }
+        if(hash != 0 && other.hash != 0 && hash != other.hash){
+            return false;
+        }
+        return Arrays.equals(elements, 0, size, other.elements, 0, other.size);
+    }
+
+    @Override
+    public int hashCode(){
+        var hash = this.hash;
+        if(hash == 0){
+            hash = 1;
+            for(var i = 0; i < size; i++){
+                hash = 31 * hash + elements[i].hashCode();
+            }
+            this.hash = hash;
+        }
+        return hash;
+    }
+
     private static int start(int size) {
         return size == 0 ? 0 : (int) ((size * 0x5DEECE66DL + 11) & 0x7FFFFFFF) % size;
     }
 
+    private int removeVisited(int index, int start, int position){
+        var last = size - 1;
+        removeAt(index);
+        // the element swapped in from the tail has not been visited yet, see it next
+        if(last > index && (index >= start || last < start)){
+            return index;
+        }
+        return position;
+    }
+
     @Override
     public Iterator<E> iterator() {
         return new Iterator<>() {
-            int position = start(size);
+            final int start = start(size);
+            int position = start;
             int count = 0;
+            int lastReturned = -1;
             @Override
             public boolean hasNext() {
                 return count < size;
@@ -73,6 +1323,7 @@ public final class UnorderedVec<E> implements Iterable<E> {
                     throw new NoSuchElementException();
                 }
                 var element = elements[position];
+                lastReturned = position;
                 position++;
                 count++;
                 if(position == size){
@@ -80,6 +1331,68 @@ public final class UnorderedVec<E> implements Iterable<E> {
                 }
                 return element;
             }
+
+            @Override
+            public void remove() {
+                if(lastReturned == -1){
+                    throw new IllegalStateException();
+                }
+                position = removeVisited(lastReturned, start, position);
+                count--;
+                lastReturned = -1;
+            }
         };
     }
+
+    public Cursor cursor(){
+        return new Cursor();
+    }
+
+    public final class Cursor {
+        private int start;
+        private int position;
+        private int count;
+        private int current;
+
+        private Cursor(){
+            reset();
+        }
+
+        public void reset(){
+            start = start(size);
+            position = start;
+            count = 0;
+            current = -1;
+        }
+
+        public boolean advance(){
+            if(count >= size){
+                current = -1;
+                return false;
+            }
+            current = position;
+            position++;
+            count++;
+            if(position == size){
+                position = 0;
+            }
+            return true;
+        }
+
+        public E current(){
+            if(current == -1){
+                throw new IllegalStateException();
+            }
+            return elements[current];
+        }
+
+        public void removeCurrent(){
+            if(current == -1){
+                throw new IllegalStateException();
+            }
+            position = removeVisited(current, start, position);
+            count--;
+            current = -1;
+        }
+    }
 }
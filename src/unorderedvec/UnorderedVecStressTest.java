@@ -0,0 +1,408 @@
+package unorderedvec;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class UnorderedVecStressTest {
+  private static HashMap<Integer, Integer> countsOf(Iterable<Integer> iterable) {
+    var counts = new HashMap<Integer, Integer>();
+    for (var value : iterable) {
+      counts.merge(value, 1, Integer::sum);
+    }
+    return counts;
+  }
+
+  private static void removeFromModel(HashMap<Integer, Integer> model, Integer value) {
+    model.computeIfPresent(value, (__, count) -> count == 1 ? null : count - 1);
+  }
+
+  private static void randomOperations(long seed, int operations, int maxValue) {
+    var random = new SplittableRandom(seed);
+    var vec = new UnorderedVec<Integer>();
+    var byRemainder = vec.index(value -> value % 8);
+    var cursor = vec.cursor();
+    var model = new HashMap<Integer, Integer>();
+    for (var operation = 0; operation < operations; operation++) {
+      switch (random.nextInt(10)) {
+        case 0, 1, 2, 3 -> {
+          var value = random.nextInt(maxValue);
+          vec.add(value);
+          model.merge(value, 1, Integer::sum);
+        }
+        case 4, 5 -> {
+          var value = random.nextInt(maxValue);
+          assertEquals(model.containsKey(value), vec.remove(value));
+          removeFromModel(model, value);
+        }
+        case 6 -> {
+          var iterator = vec.iterator();
+          var skip = random.nextInt(vec.size() + 1);
+          for (var i = 0; i < skip && iterator.hasNext(); i++) {
+            var value = iterator.next();
+            if (random.nextBoolean()) {
+              iterator.remove();
+              removeFromModel(model, value);
+            }
+          }
+        }
+        case 7 -> {
+          cursor.reset();
+          var remainder = random.nextInt(16);
+          while (cursor.advance()) {
+            var value = cursor.current();
+            if (value % 16 == remainder) {
+              cursor.removeCurrent();
+              removeFromModel(model, value);
+            }
+          }
+        }
+        case 8 -> {
+          var batch = vec.batch();
+          for (var i = random.nextInt(8); i > 0; i--) {
+            var value = random.nextInt(maxValue);
+            batch.remove(value);
+            removeFromModel(model, value);
+          }
+          for (var i = random.nextInt(8); i > 0; i--) {
+            var value = random.nextInt(maxValue);
+            batch.add(value);
+            model.merge(value, 1, Integer::sum);
+          }
+          batch.apply();
+        }
+        case 9 -> {
+          if (random.nextInt(16) == 0) {
+            var modulus = 2 + random.nextInt(30);
+            vec.parallelRemoveIf(value -> value % modulus == 0);
+            model.keySet().removeIf(value -> value % modulus == 0);
+          }
+        }
+        default -> throw new AssertionError();
+      }
+      if (operation % 1_024 == 0) {
+        assertEquals(model, countsOf(vec));
+      }
+    }
+    assertEquals(model, countsOf(vec));
+    assertEquals(model.values().stream().mapToInt(Integer::intValue).sum(), vec.size());
+    for (var remainder = 0; remainder < 8; remainder++) {
+      var expected = 0;
+      for (var entry : model.entrySet()) {
+        if (entry.getKey() % 8 == remainder) {
+          expected += entry.getValue();
+        }
+      }
+      assertEquals(expected, byRemainder.count(remainder));
+    }
+  }
+
+  @Test
+  public void randomOperationsSmallValues() {
+    for (var seed = 0; seed < 20; seed++) {
+      randomOperations(seed, 5_000, 16);
+    }
+  }
+
+  @Test
+  public void randomOperationsLargeValues() {
+    for (var seed = 0; seed < 5; seed++) {
+      randomOperations(seed, 100_000, 1_000_000);
+    }
+  }
+
+  @Test
+  @Tag("stress")
+  public void tenMillionElements() {
+    var pool = IntStream.range(0, 1_024).boxed().toArray(Integer[]::new);
+    var vec = new UnorderedVec<Integer>();
+    for (var i = 0; i < 10_485_760; i++) {
+      vec.add(pool[i & 1_023]);
+    }
+    assertEquals(10_485_760, vec.size());
+
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      assertTrue(vec.parallelRemoveIf(value -> value % 2 == 0));
+      var batch = vec.batch();
+      for (var i = 0; i < 1_048_576; i++) {
+        batch.remove(pool[1 + 2 * (i % 512)]);
+      }
+      batch.apply();
+    });
+
+    assertEquals(4_194_304, vec.size());
+    var counts = countsOf(vec);
+    assertEquals(512, counts.size());
+    for (var entry : counts.entrySet()) {
+      assertEquals(1, entry.getKey() % 2);
+      assertEquals(8_192, entry.getValue());
+    }
+  }
+
+  // counts the calls to equals and hashCode, so an accidentally quadratic algorithm fails whatever the machine
+  record Probe(int value, LongAdder calls) {
+    @Override
+    public boolean equals(Object o) {
+      calls.increment();
+      return o instanceof Probe probe && value == probe.value;
+    }
+
+    @Override
+    public int hashCode() {
+      calls.increment();
+      return value;
+    }
+  }
+
+  @Test
+  public void batchApplyIsLinear() {
+    var calls = new LongAdder();
+    var vec = new UnorderedVec<Probe>();
+    var n = 100_000;
+    IntStream.range(0, n).forEach(i -> vec.add(new Probe(i, calls)));
+    var batch = vec.batch();
+    var k = 50_000;
+    IntStream.range(0, k).forEach(i -> batch.remove(new Probe(2 * i, calls)));
+    calls.reset();
+
+    batch.apply();
+
+    assertEquals(n - k, vec.size());
+    assertTrue(calls.sum() <= 4L * (n + k), "" + calls.sum());
+  }
+
+  @Test
+  public void contentEqualsIsLinear() {
+    var calls = new LongAdder();
+    var vec1 = new UnorderedVec<Probe>();
+    var vec2 = new UnorderedVec<Probe>();
+    var n = 100_000;
+    IntStream.range(0, n).forEach(i -> vec1.add(new Probe(i, calls)));
+    IntStream.range(0, n).forEach(i -> vec2.add(new Probe(n - 1 - i, calls)));
+    calls.reset();
+
+    assertTrue(vec1.contentEquals(vec2));
+    assertTrue(calls.sum() <= 8L * n, "" + calls.sum());
+  }
+
+  @Test
+  public void setAlgebraIsLinear() {
+    var calls = new LongAdder();
+    var vec1 = new UnorderedVec<Probe>();
+    var vec2 = new UnorderedVec<Probe>();
+    var n = 100_000;
+    IntStream.range(0, n).forEach(i -> vec1.add(new Probe(i, calls)));
+    IntStream.range(0, n / 10).forEach(i -> vec2.add(new Probe(2 * i, calls)));
+
+    for (var multiplicity : UnorderedVec.Multiplicity.values()) {
+      calls.reset();
+      assertEquals(n / 10, vec1.intersect(vec2, multiplicity).size());
+      assertEquals(n - n / 10, vec1.difference(vec2, multiplicity).size());
+      assertTrue(vec2.unionInPlace(vec1, multiplicity));
+      assertEquals(n, vec2.size());
+      assertTrue(vec2.symmetricDifferenceInPlace(vec1, multiplicity));
+      assertEquals(0, vec2.size());
+      IntStream.range(0, n / 10).forEach(i -> vec2.add(new Probe(2 * i, calls)));
+      assertTrue(calls.sum() <= 4L * 16 * n, "" + calls.sum());
+    }
+  }
+
+  @Test
+  public void membershipFilterSkipsMostScans() {
+    var calls = new LongAdder();
+    var vec = new UnorderedVec<Probe>();
+    vec.enableMembershipFilter(10_000, 0.01);
+    var n = 10_000;
+    IntStream.range(0, n).forEach(i -> vec.add(new Probe(i, calls)));
+    calls.reset();
+
+    for (var i = n; i < 2 * n; i++) {
+      assertFalse(vec.remove(new Probe(i, calls)));
+    }
+
+    // each lookup hashes once, a false positive (about 1%) costs a full scan
+    assertTrue(calls.sum() <= n + 0.03 * n * n, "" + calls.sum());
+  }
+
+  @Test
+  public void parallelRemoveIfTestsEachElementOnce() {
+    var vec = new UnorderedVec<Integer>();
+    IntStream.range(0, 1_000_000).forEach(vec::add);
+    var calls = new LongAdder();
+
+    vec.parallelRemoveIf(value -> {
+      calls.increment();
+      return value % 3 == 0;
+    });
+
+    assertEquals(1_000_000, calls.sum());
+    assertEquals(666_666, vec.size());
+  }
+
+  private static long allocatedBytes(Runnable runnable) {
+    var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    var before = bean.getCurrentThreadAllocatedBytes();
+    runnable.run();
+    return bean.getCurrentThreadAllocatedBytes() - before;
+  }
+
+  @Test
+  public void cursorTraversalDoesNotAllocate() {
+    var vec = new UnorderedVec<Integer>();
+    IntStream.range(0, 8).forEach(vec::add);
+    var cursor = vec.cursor();
+    var sum = new long[1];
+    Runnable traversals = () -> {
+      for (var i = 0; i < 100_000; i++) {
+        cursor.reset();
+        while (cursor.advance()) {
+          sum[0] += cursor.current();
+        }
+      }
+    };
+    for (var i = 0; i < 20; i++) {
+      traversals.run();
+    }
+
+    var allocated = allocatedBytes(traversals);
+    assertTrue(allocated < 1_024, "" + allocated);
+    assertEquals(28L * 100_000 * 21, sum[0]);
+  }
+
+  @Test
+  public void emptyVecsOnlyAllocateTheirHeader() {
+    var vecs = new UnorderedVec<?>[100_000];
+    var allocated = allocatedBytes(() -> {
+      for (var i = 0; i < vecs.length; i++) {
+        vecs[i] = new UnorderedVec<>();
+      }
+    });
+
+    var perVec = (double) allocated / vecs.length;
+    assertTrue(perVec <= MemoryLayout.instanceBytes(UnorderedVec.class) + 1, "" + perVec);
+  }
+
+  // the workers run as futures so an assertion failing in a worker fails the test, failed lets the other workers stop early
+  private static CompletableFuture<Void> start(Runnable task, Executor executor, AtomicBoolean failed) {
+    return CompletableFuture.runAsync(task, executor).whenComplete((__, throwable) -> {
+      if (throwable != null) {
+        failed.set(true);
+      }
+    });
+  }
+
+  private static void joinAll(List<CompletableFuture<Void>> futures) {
+    for (var future : futures) {
+      try {
+        future.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof Error error) {
+          throw error;
+        }
+        if (e.getCause() instanceof RuntimeException runtimeException) {
+          throw runtimeException;
+        }
+        throw e;
+      }
+    }
+  }
+
+  @Test
+  public void shardedTorture() {
+    var vec = new ShardedUnorderedVec<Integer>();
+    var removed = new LongAdder();
+    var failed = new AtomicBoolean();
+    var futures = new ArrayList<CompletableFuture<Void>>();
+    try (var executor = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().factory())) {
+      for (var t = 0; t < 8; t++) {
+        var base = t * 10_000;
+        futures.add(start(() -> {
+          for (var i = 0; i < 10_000 && !failed.get(); i++) {
+            vec.add(base + i);
+            if (i % 2 == 1 && vec.remove(base + i - 1)) {
+              removed.increment();
+            }
+          }
+        }, executor, failed));
+      }
+      futures.add(start(() -> {
+        for (var i = 0; i < 20 && !failed.get(); i++) {
+          var count = 0;
+          for (var __ : vec) {
+            count++;
+          }
+          assertTrue(count <= 80_000);
+        }
+      }, executor, failed));
+      joinAll(futures);
+    }
+
+    assertEquals(40_000, removed.sum());
+    assertEquals(40_000, vec.size());
+    for (var value : vec) {
+      assertEquals(1, value % 2);
+    }
+  }
+
+  @Test
+  public void workStealingBagTorture() {
+    assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+      var bag = new WorkStealingBag<Integer>();
+      var seen = ConcurrentHashMap.<Integer>newKeySet();
+      var consumed = new AtomicInteger();
+      var failed = new AtomicBoolean();
+      var futures = new ArrayList<CompletableFuture<Void>>();
+      try (var producers = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().factory());
+           var consumers = Executors.newVirtualThreadPerTaskExecutor()) {
+        for (var t = 0; t < 8; t++) {
+          var base = t * 50_000;
+          futures.add(start(() -> {
+            for (var i = 0; i < 50_000 && !failed.get(); i++) {
+              bag.add(base + i);
+              var value = bag.poll();
+              if (value != null) {
+                assertTrue(seen.add(value), "duplicate " + value);
+                consumed.incrementAndGet();
+              }
+            }
+          }, producers, failed));
+          futures.add(start(() -> {
+            try {
+              while (consumed.get() < 400_000 && !failed.get()) {
+                var value = bag.poll(1, TimeUnit.MILLISECONDS);
+                if (value != null) {
+                  assertTrue(seen.add(value), "duplicate " + value);
+                  consumed.incrementAndGet();
+                }
+              }
+            } catch (InterruptedException e) {
+              throw new AssertionError(e);
+            }
+          }, consumers, failed));
+        }
+        joinAll(futures);
+      }
+
+      assertEquals(400_000, seen.size());
+      assertNull(bag.poll());
+    });
+  }
+}
@@ -6,13 +6,37 @@ import org.junit.jupiter.api.Test;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.AccessFlag;
 import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.Collector;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import static java.util.stream.Collectors.toSet;
 import static org.junit.jupiter.api.Assertions.*;
 
 public final class UnorderedVecTest {
@@ -252,11 +276,16 @@ public final class UnorderedVecTest {
     @Test
     public void qualityOfImplementation() throws IllegalAccessException {
       var field = Arrays.stream(UnorderedVec.class.getDeclaredFields())
-          .filter(f -> f.getType().isArray())
+          .filter(f -> f.getType().isArray() && !Modifier.isStatic(f.getModifiers()))
           .findFirst().orElseThrow();
       field.setAccessible(true);
-      var vec = new UnorderedVec<>();
-      assertEquals(16, Array.getLength(field.get(vec)));
+      var vec1 = new UnorderedVec<>();
+      var vec2 = new UnorderedVec<>();
+      assertEquals(0, Array.getLength(field.get(vec1)));
+      assertSame(field.get(vec1), field.get(vec2));
+      vec1.add("foo");
+      assertEquals(4, Array.getLength(field.get(vec1)));
+      assertEquals(0, Array.getLength(field.get(vec2)));
     }
   }
 
@@ -569,6 +598,7 @@ public final class UnorderedVecTest {
       assertEquals("<false, 1, Two, 3.0>", "" + vec);
     }
   }
+ */
 
   @Nested
   public class Q6 {
@@ -695,9 +725,77 @@ public final class UnorderedVecTest {
 
       assertEquals(vec, vec2);
     }
-  }
 
+    @Test
+    public void equalsAfterRemove() {
+      var vec1 = new UnorderedVec<String>();
+      vec1.add("Hello");
+      vec1.add("World");
+      vec1.hashCode();
+      vec1.remove("World");
+      var vec2 = new UnorderedVec<String>();
+      vec2.add("Hello");
+      vec2.hashCode();
+
+      assertEquals(vec1, vec2);
+      assertEquals(vec1.hashCode(), vec2.hashCode());
+    }
+
+    @Test
+    public void equalsDifferentHashCodes() {
+      var vec1 = new UnorderedVec<String>();
+      vec1.add("Hello");
+      var vec2 = new UnorderedVec<String>();
+      vec2.add("World");
+
+      assertNotEquals(vec1.hashCode(), vec2.hashCode());
+      assertFalse(vec1.equals(vec2));
+    }
+
+    @Test
+    public void contentEqualsDifferentOrder() {
+      var vec1 = new UnorderedVec<String>();
+      vec1.add("Hello");
+      vec1.add("World");
+      var vec2 = new UnorderedVec<String>();
+      vec2.add("World");
+      vec2.add("Hello");
+
+      assertTrue(vec1.contentEquals(vec2));
+    }
+
+    @Test
+    public void contentEqualsCountsDuplicates() {
+      var vec1 = new UnorderedVec<String>();
+      vec1.add("Hello");
+      vec1.add("Hello");
+      vec1.add("World");
+      var vec2 = new UnorderedVec<String>();
+      vec2.add("World");
+      vec2.add("World");
+      vec2.add("Hello");
+
+      assertFalse(vec1.contentEquals(vec2));
+    }
+
+    @Test
+    public void contentEqualsDifferentSizes() {
+      var vec1 = new UnorderedVec<Integer>();
+      vec1.add(1);
+      var vec2 = new UnorderedVec<Integer>();
+
+      assertFalse(vec1.contentEquals(vec2));
+      assertTrue(vec2.contentEquals(new UnorderedVec<String>()));
+    }
+
+    @Test
+    public void contentEqualsPrecondition() {
+      var vec = new UnorderedVec<>();
+      assertThrows(NullPointerException.class, () -> vec.contentEquals(null));
+    }
+  }
 
+  /*
   @Nested
   public class Q7 {
 
@@ -1259,4 +1357,1684 @@ public final class UnorderedVecTest {
     }
   }
  */
+  @Nested
+  public class Q10 {
+    @Test
+    public void parallelForEachSeesAllElements() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 10_000).forEach(vec::add);
+      var sum = new LongAdder();
+      vec.parallelForEach(sum::add, ForkJoinPool.commonPool());
+      assertEquals(49_995_000L, sum.sum());
+    }
+
+    @Test
+    public void parallelForEachOnVirtualThreads() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 1_000).forEach(vec::add);
+      var seen = ConcurrentHashMap.<Integer>newKeySet();
+      try(var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        vec.parallelForEach(seen::add, executor);
+      }
+      assertEquals(1_000, seen.size());
+    }
+
+    @Test
+    public void parallelForEachOneSlicePerElement() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 1_000).forEach(vec::add);
+      // every element blocks until all of them are in flight at the same time
+      var latch = new CountDownLatch(1_000);
+      var released = new LongAdder();
+      try(var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        vec.parallelForEach(__ -> {
+          latch.countDown();
+          try {
+            if (latch.await(10, TimeUnit.SECONDS)) {
+              released.increment();
+            }
+          } catch (InterruptedException e) {
+            throw new AssertionError(e);
+          }
+        }, executor, vec.size());
+      }
+      assertEquals(1_000, released.sum());
+    }
+
+    @Test
+    public void parallelRemoveIfWithSlices() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 1_000).forEach(vec::add);
+
+      assertTrue(vec.parallelRemoveIf(i -> i % 3 == 0, ForkJoinPool.commonPool(), 7));
+      assertEquals(666, vec.size());
+    }
+
+    @Test
+    public void parallelForEachEmpty() {
+      var vec = new UnorderedVec<String>();
+      vec.parallelForEach(__ -> fail(), ForkJoinPool.commonPool());
+    }
+
+    @Test
+    public void parallelRemoveIf() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 10_000).forEach(vec::add);
+
+      assertTrue(vec.parallelRemoveIf(i -> i % 2 == 0));
+
+      assertEquals(5_000, vec.size());
+      for(var value : vec) {
+        assertEquals(1, value % 2);
+      }
+    }
+
+    @Test
+    public void parallelRemoveIfAll() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 1_000).forEach(vec::add);
+
+      assertTrue(vec.parallelRemoveIf(__ -> true));
+      assertEquals(0, vec.size());
+    }
+
+    @Test
+    public void parallelRemoveIfNothing() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 1_000).forEach(vec::add);
+
+      assertFalse(vec.parallelRemoveIf(i -> i < 0));
+      assertEquals(1_000, vec.size());
+    }
+
+    @Test
+    public void parallelRemoveIfPropagatesException() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 100).forEach(vec::add);
+
+      assertThrows(IllegalStateException.class, () -> vec.parallelRemoveIf(i -> {
+        if (i == 42) {
+          throw new IllegalStateException();
+        }
+        return true;
+      }));
+      assertEquals(100, vec.size());
+    }
+
+    @Test
+    public void parallelPreconditions() {
+      var vec = new UnorderedVec<String>();
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> vec.parallelForEach(null, ForkJoinPool.commonPool())),
+          () -> assertThrows(NullPointerException.class, () -> vec.parallelForEach(__ -> {}, null)),
+          () -> assertThrows(NullPointerException.class, () -> vec.parallelRemoveIf(null)),
+          () -> assertThrows(IllegalArgumentException.class, () -> vec.parallelForEach(__ -> {}, ForkJoinPool.commonPool(), 0)),
+          () -> assertThrows(IllegalArgumentException.class, () -> vec.parallelRemoveIf(__ -> true, ForkJoinPool.commonPool(), -1))
+      );
+    }
+  }
+  @Nested
+  public class Q11 {
+    @Test
+    public void cursorSameOrderAsIterator() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 10).forEach(vec::add);
+      var list = new ArrayList<Integer>();
+      var cursor = vec.cursor();
+      while (cursor.advance()) {
+        list.add(cursor.current());
+      }
+
+      assertEquals(List.of(5, 6, 7, 8, 9, 0, 1, 2, 3, 4), list);
+    }
+
+    @Test
+    public void cursorReset() {
+      var vec = new UnorderedVec<String>();
+      vec.add("A");
+      vec.add("B");
+      vec.add("C");
+      var cursor = vec.cursor();
+      var list1 = new ArrayList<String>();
+      while (cursor.advance()) {
+        list1.add(cursor.current());
+      }
+      cursor.reset();
+      var list2 = new ArrayList<String>();
+      while (cursor.advance()) {
+        list2.add(cursor.current());
+      }
+
+      assertEquals(List.of("B", "C", "A"), list1);
+      assertEquals(list1, list2);
+    }
+
+    @Test
+    public void cursorResetSeesNewElements() {
+      var vec = new UnorderedVec<Integer>();
+      vec.add(1);
+      var cursor = vec.cursor();
+      vec.add(2);
+      vec.add(3);
+      cursor.reset();
+      var list = new ArrayList<Integer>();
+      while (cursor.advance()) {
+        list.add(cursor.current());
+      }
+
+      assertEquals(List.of(2, 3, 1), list);
+    }
+
+    @Test
+    public void cursorEmpty() {
+      var vec = new UnorderedVec<String>();
+      var cursor = vec.cursor();
+      assertFalse(cursor.advance());
+      assertThrows(IllegalStateException.class, cursor::current);
+    }
+
+    @Test
+    public void cursorRemoveCurrent() {
+      var vec = new UnorderedVec<Integer>();
+      vec.add(1);
+      vec.add(3);
+      vec.add(7);
+      vec.add(2);
+
+      var cursor = vec.cursor();
+      while (cursor.advance()) {
+        if (cursor.current() % 2 == 1) {
+          cursor.removeCurrent();
+        }
+      }
+
+      assertEquals(1, vec.size());
+      assertEquals(2, vec.iterator().next());
+    }
+
+    @Test
+    public void cursorRemoveCurrentSeesAllElements() {
+      for (var size = 1; size <= 40; size++) {
+        for (var step = 1; step <= 3; step++) {
+          var vec = new UnorderedVec<Integer>();
+          IntStream.range(0, size).forEach(vec::add);
+          var seen = new ArrayList<Integer>();
+          var kept = new ArrayList<Integer>();
+          var cursor = vec.cursor();
+          while (cursor.advance()) {
+            var value = cursor.current();
+            seen.add(value);
+            if (value % step == 0) {
+              cursor.removeCurrent();
+            } else {
+              kept.add(value);
+            }
+          }
+
+          seen.sort(null);
+          kept.sort(null);
+          assertEquals(IntStream.range(0, size).boxed().toList(), seen);
+          var remaining = new ArrayList<Integer>();
+          vec.forEach(remaining::add);
+          remaining.sort(null);
+          assertEquals(kept, remaining);
+        }
+      }
+    }
+
+    @Test
+    public void cursorRemoveWithoutAdvance() {
+      var vec = new UnorderedVec<String>();
+      vec.add("A");
+      var cursor = vec.cursor();
+      assertThrows(IllegalStateException.class, cursor::removeCurrent);
+    }
+
+    @Test
+    public void cursorRemoveTwice() {
+      var vec = new UnorderedVec<String>();
+      vec.add("A");
+      vec.add("B");
+      var cursor = vec.cursor();
+      cursor.advance();
+      cursor.removeCurrent();
+      assertThrows(IllegalStateException.class, cursor::removeCurrent);
+      assertThrows(IllegalStateException.class, cursor::current);
+    }
+
+    @Test
+    public void iteratorRemoveSeesAllElements() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 11).forEach(vec::add);
+
+      var seen = new ArrayList<Integer>();
+      var iterator = vec.iterator();
+      while (iterator.hasNext()) {
+        seen.add(iterator.next());
+        iterator.remove();
+      }
+
+      seen.sort(null);
+      assertEquals(0, vec.size());
+      assertEquals(IntStream.range(0, 11).boxed().toList(), seen);
+    }
+
+    @Test
+    public void iteratorRemoveWithoutNext() {
+      var vec = new UnorderedVec<String>();
+      vec.add("A");
+      var iterator = vec.iterator();
+      assertThrows(IllegalStateException.class, iterator::remove);
+    }
+  }
+  @Nested
+  public class Q12 {
+    @Test
+    public void batchAddAndRemove() {
+      var vec = new UnorderedVec<String>();
+      vec.add("A");
+      vec.add("B");
+      vec.add("C");
+
+      assertTrue(vec.batch().remove("A").remove("C").add("D").add("E").apply());
+
+      var list = new ArrayList<String>();
+      vec.forEach(list::add);
+      list.sort(null);
+      assertEquals(List.of("B", "D", "E"), list);
+    }
+
+    @Test
+    public void batchRemovesOneOccurrencePerRemove() {
+      var vec = new UnorderedVec<Integer>();
+      for (var i = 0; i < 5; i++) {
+        vec.add(7);
+      }
+      vec.add(8);
+
+      vec.batch().remove(7).remove(7).remove(8).remove(9).apply();
+
+      assertEquals(3, vec.size());
+      for (var value : vec) {
+        assertEquals(7, value);
+      }
+    }
+
+    @Test
+    public void batchRemovalsDoNotSeeAdditions() {
+      var vec = new UnorderedVec<String>();
+      vec.batch().add("A").remove("A").apply();
+
+      assertEquals(1, vec.size());
+    }
+
+    @Test
+    public void batchIsReusable() {
+      var vec = new UnorderedVec<Integer>();
+      var batch = vec.batch();
+      batch.add(1).add(2).apply();
+      batch.remove(1).apply();
+
+      assertEquals(1, vec.size());
+      assertEquals(2, vec.iterator().next());
+      assertFalse(batch.apply());
+    }
+
+    @Test
+    public void batchNothing() {
+      var vec = new UnorderedVec<Integer>();
+      vec.add(1);
+      assertFalse(vec.batch().remove(2).apply());
+      assertEquals(1, vec.size());
+    }
+
+    @Test
+    public void batchAddGrows() {
+      var vec = new UnorderedVec<Integer>();
+      var batch = vec.batch();
+      IntStream.range(0, 1_000).forEach(batch::add);
+      batch.apply();
+
+      assertEquals(1_000, vec.size());
+      var counter = 0;
+      for (var value : vec) {
+        assertEquals((843 + counter++) % 1_000, value);
+      }
+    }
+
+    @Test
+    public void batchRemoveManyFast() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 1_000_000).forEach(vec::add);
+      var batch = vec.batch();
+      IntStream.range(0, 1_000_000).filter(i -> i % 2 == 0).forEach(batch::remove);
+
+      assertTimeoutPreemptively(Duration.ofMillis(1_000), () -> assertTrue(batch.apply()));
+      assertEquals(500_000, vec.size());
+      for (var value : vec) {
+        assertEquals(1, value % 2);
+      }
+    }
+
+    @Test
+    public void batchPreconditions() {
+      var batch = new UnorderedVec<String>().batch();
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> batch.add(null)),
+          () -> assertThrows(NullPointerException.class, () -> batch.remove(null))
+      );
+    }
+  }
+  @Nested
+  public class Q13 {
+    @Test
+    public void versionCountsMutations() {
+      var vec = new UnorderedVec<String>();
+      assertEquals(0, vec.version());
+      vec.add("A");
+      vec.add("B");
+      vec.remove("A");
+      vec.remove("C");
+      assertEquals(3, vec.version());
+    }
+
+    @Test
+    public void changesSince() {
+      var vec = new UnorderedVec<String>();
+      vec.add("A");
+      vec.trackChanges(16);
+      var version = vec.version();
+      vec.add("B");
+      vec.add("C");
+      vec.remove("A");
+
+      var changes = vec.changesSince(version);
+      assertFalse(changes.resync());
+      assertEquals(vec.version(), changes.version());
+      assertEquals(Set.of("B", "C"), Set.copyOf(changes.added()));
+      assertEquals(List.of("A"), changes.removed());
+    }
+
+    @Test
+    public void changesSinceCancelsAddThenRemove() {
+      var vec = new UnorderedVec<String>();
+      vec.trackChanges(16);
+      vec.add("A");
+      vec.add("B");
+      vec.remove("A");
+
+      var changes = vec.changesSince(0);
+      assertEquals(List.of("B"), changes.added());
+      assertEquals(List.of(), changes.removed());
+    }
+
+    @Test
+    public void changesSinceNow() {
+      var vec = new UnorderedVec<String>();
+      vec.trackChanges(16);
+      vec.add("A");
+
+      var changes = vec.changesSince(vec.version());
+      assertEquals(List.of(), changes.added());
+      assertEquals(List.of(), changes.removed());
+      assertFalse(changes.resync());
+    }
+
+    @Test
+    public void changesSinceSeesIteratorAndBatchRemovals() {
+      var vec = new UnorderedVec<Integer>();
+      vec.trackChanges(16);
+      IntStream.range(0, 4).forEach(vec::add);
+      var version = vec.version();
+      var iterator = vec.iterator();
+      var first = iterator.next();
+      iterator.remove();
+      vec.batch().remove((first + 1) % 4).add(4).apply();
+
+      var changes = vec.changesSince(version);
+      assertEquals(List.of(4), changes.added());
+      assertEquals(Set.of(first, (first + 1) % 4), Set.copyOf(changes.removed()));
+    }
+
+    @Test
+    public void changesSinceOverflowRequiresResync() {
+      var vec = new UnorderedVec<Integer>();
+      vec.trackChanges(4);
+      IntStream.range(0, 10).forEach(vec::add);
+
+      assertTrue(vec.changesSince(5).resync());
+      assertFalse(vec.changesSince(6).resync());
+      assertEquals(4, vec.changesSince(6).added().size());
+    }
+
+    @Test
+    public void changesSinceBeforeTracking() {
+      var vec = new UnorderedVec<Integer>();
+      vec.add(1);
+      vec.trackChanges(4);
+      vec.add(2);
+
+      assertTrue(vec.changesSince(0).resync());
+    }
+
+    @Test
+    public void changesSincePreconditions() {
+      var vec = new UnorderedVec<Integer>();
+      assertThrows(IllegalStateException.class, () -> vec.changesSince(0));
+      vec.trackChanges(4);
+      assertAll(
+          () -> assertThrows(IllegalArgumentException.class, () -> vec.changesSince(1)),
+          () -> assertThrows(IllegalArgumentException.class, () -> vec.changesSince(-1)),
+          () -> assertThrows(IllegalArgumentException.class, () -> vec.trackChanges(0))
+      );
+    }
+  }
+  @Nested
+  public class Q14 {
+    @Test
+    public void footprintOfEmptyVec() {
+      var footprint = new UnorderedVec<String>().memoryFootprint();
+      assertEquals(0, footprint.size());
+      assertEquals(0, footprint.capacity());
+      assertEquals(0, footprint.wastedBytes());
+      assertTrue(footprint.shallowBytes() > 0);
+      assertTrue(footprint.deepBytes().isEmpty());
+    }
+
+    @Test
+    public void footprintGrowsWithCapacity() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 16).forEach(vec::add);
+      var before = vec.memoryFootprint();
+      vec.add(16);
+      var after = vec.memoryFootprint();
+
+      assertEquals(16, before.capacity());
+      assertEquals(0, before.wastedBytes());
+      assertEquals(17, after.size());
+      assertEquals(32, after.capacity());
+      assertEquals(after.wastedBytes() + after.wastedBytes() / 15, after.shallowBytes() - before.shallowBytes());
+    }
+
+    @Test
+    public void footprintAfterTrimToSize() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 17).forEach(vec::add);
+      vec.trimToSize();
+      var footprint = vec.memoryFootprint();
+
+      assertEquals(17, footprint.capacity());
+      assertEquals(0, footprint.wastedBytes());
+      var counter = 0;
+      for (var value : vec) {
+        assertEquals((start(17) + counter++) % 17, value);
+      }
+    }
+
+    private static int start(int size) {
+      return (int) ((size * 0x5DEECE66DL + 11) & 0x7FFFFFFF) % size;
+    }
+
+    @Test
+    public void addAfterTrimToSizeOfEmptyVec() {
+      var vec = new UnorderedVec<String>();
+      vec.trimToSize();
+      assertEquals(0, vec.memoryFootprint().capacity());
+      vec.add("A");
+      vec.add("B");
+      assertEquals(2, vec.size());
+    }
+
+    @Test
+    public void deepFootprint() {
+      var vec = new UnorderedVec<String>();
+      vec.add("foo");
+      vec.add("quux");
+      var footprint = vec.memoryFootprint(String::length);
+
+      assertEquals(footprint.shallowBytes() + 7, footprint.deepBytes().orElseThrow());
+    }
+
+    @Test
+    public void deepFootprintPrecondition() {
+      var vec = new UnorderedVec<String>();
+      assertThrows(NullPointerException.class, () -> vec.memoryFootprint(null));
+    }
+  }
+  @Nested
+  public class Q15 {
+    record Task(String name, String status, int priority) {}
+
+    private static <E> Set<E> setOf(UnorderedVec<E> vec) {
+      var set = new HashSet<E>();
+      vec.forEach(set::add);
+      return set;
+    }
+
+    @Test
+    public void indexLookup() {
+      var vec = new UnorderedVec<Task>();
+      var byStatus = vec.index(Task::status);
+      var a = new Task("a", "todo", 1);
+      var b = new Task("b", "done", 2);
+      var c = new Task("c", "todo", 3);
+      vec.add(a);
+      vec.add(b);
+      vec.add(c);
+
+      assertEquals(Set.of(a, c), setOf(byStatus.lookup("todo")));
+      assertEquals(Set.of(b), setOf(byStatus.lookup("done")));
+      assertEquals(0, byStatus.lookup("doing").size());
+      assertEquals(2, byStatus.count("todo"));
+    }
+
+    @Test
+    public void indexExistingElements() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 100).forEach(vec::add);
+      var byRemainder = vec.index(i -> i % 10);
+
+      assertEquals(10, byRemainder.count(3));
+      assertEquals(IntStream.range(0, 10).map(i -> i * 10 + 3).boxed().collect(toSet()), setOf(byRemainder.lookup(3)));
+    }
+
+    @Test
+    public void indexFollowsSwapRemove() {
+      var vec = new UnorderedVec<Integer>();
+      var byRemainder = vec.index(i -> i % 3);
+      IntStream.range(0, 30).forEach(vec::add);
+
+      vec.remove(0);
+      vec.remove(29);
+      vec.remove(14);
+
+      assertEquals(IntStream.range(1, 10).map(i -> i * 3).boxed().collect(toSet()), setOf(byRemainder.lookup(0)));
+      assertEquals(IntStream.range(0, 10).map(i -> i * 3 + 2).filter(i -> i != 14 && i != 29).boxed().collect(toSet()), setOf(byRemainder.lookup(2)));
+      assertEquals(10, byRemainder.count(1));
+    }
+
+    @Test
+    public void indexFollowsIteratorAndBulkRemovals() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 1_000).forEach(vec::add);
+      var byRemainder = vec.index(i -> i % 7);
+      var iterator = vec.iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next() % 2 == 0) {
+          iterator.remove();
+        }
+      }
+      vec.parallelRemoveIf(i -> i % 5 == 0);
+      vec.batch().remove(1).remove(3).add(2_000).apply();
+
+      for (var remainder = 0; remainder < 7; remainder++) {
+        var expected = new HashSet<Integer>();
+        for (var value : vec) {
+          if (value % 7 == remainder) {
+            expected.add(value);
+          }
+        }
+        assertEquals(expected, setOf(byRemainder.lookup(remainder)));
+      }
+    }
+
+    @Test
+    public void sortedIndexRange() {
+      var vec = new UnorderedVec<Task>();
+      var byPriority = vec.sortedIndex(Task::priority, Comparator.naturalOrder());
+      IntStream.range(0, 20).forEach(i -> vec.add(new Task("t" + i, "todo", i % 10)));
+      vec.remove(new Task("t3", "todo", 3));
+
+      var result = byPriority.range(2, 5);
+      assertEquals(5, result.size());
+      for (var task : result) {
+        assertTrue(task.priority() >= 2 && task.priority() < 5);
+      }
+      assertEquals(1, byPriority.count(3));
+    }
+
+    @Test
+    public void severalIndexes() {
+      var vec = new UnorderedVec<Task>();
+      var byStatus = vec.index(Task::status);
+      var byName = vec.index(Task::name);
+      vec.add(new Task("a", "todo", 1));
+      vec.add(new Task("b", "done", 1));
+      vec.remove(new Task("a", "todo", 1));
+
+      assertEquals(0, byStatus.count("todo"));
+      assertEquals(1, byName.count("b"));
+    }
+
+    @Test
+    public void failingKeyExtractorLeavesIndexesUnchanged() {
+      var vec = new UnorderedVec<String>();
+      var failing = vec.index(value -> {
+        if (value.equals("boom")) {
+          throw new IllegalStateException();
+        }
+        return value.charAt(0);
+      });
+      var byLength = vec.index(String::length);
+      vec.add("foo");
+
+      assertThrows(IllegalStateException.class, () -> vec.add("boom"));
+      assertEquals(1, vec.size());
+      assertEquals(0, byLength.count(4));
+      vec.add("quux");
+
+      assertEquals(Set.of("quux"), setOf(byLength.lookup(4)));
+      assertEquals(Set.of("foo"), setOf(byLength.lookup(3)));
+      assertEquals(Set.of("quux"), setOf(failing.lookup('q')));
+      assertTrue(vec.remove("quux"));
+      assertEquals(0, byLength.count(4));
+      assertEquals(0, failing.count('q'));
+    }
+
+    @Test
+    public void indexPreconditions() {
+      var vec = new UnorderedVec<Task>();
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> vec.index(null)),
+          () -> assertThrows(NullPointerException.class, () -> vec.sortedIndex(null, Comparator.naturalOrder()))
+      );
+    }
+  }
+
+  @Nested
+  public class Q16 {
+    // an entity whose equals is a deep comparison we never want to pay for
+    static final class Entity {
+      final String name;
+      final LongAdder equalsCalls;
+
+      Entity(String name, LongAdder equalsCalls) {
+        this.name = name;
+        this.equalsCalls = equalsCalls;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+        equalsCalls.increment();
+        return o instanceof Entity entity && name.equals(entity.name);
+      }
+
+      @Override
+      public int hashCode() {
+        return name.hashCode();
+      }
+    }
+
+    @Test
+    public void identityRemove() {
+      var calls = new LongAdder();
+      var vec = UnorderedVec.<Entity>identity();
+      var entity1 = new Entity("a", calls);
+      var entity2 = new Entity("a", calls);
+      vec.add(entity1);
+      vec.add(entity2);
+
+      assertFalse(vec.remove(new Entity("a", calls)));
+      assertTrue(vec.remove(entity2));
+      assertEquals(1, vec.size());
+      assertSame(entity1, vec.iterator().next());
+      assertEquals(0, calls.sum());
+    }
+
+    @Test
+    public void identityBatchAndContentEquals() {
+      var calls = new LongAdder();
+      var entities = IntStream.range(0, 100).mapToObj(i -> new Entity("e" + i % 10, calls)).toList();
+      var vec1 = UnorderedVec.<Entity>identity();
+      var vec2 = UnorderedVec.<Entity>identity();
+      entities.forEach(vec1::add);
+      entities.reversed().forEach(vec2::add);
+
+      assertTrue(vec1.contentEquals(vec2));
+      var batch = vec1.batch();
+      entities.subList(0, 50).forEach(batch::remove);
+      batch.remove(new Entity("e0", calls));
+      batch.apply();
+
+      assertEquals(50, vec1.size());
+      var identities = Collections.newSetFromMap(new IdentityHashMap<Entity, Boolean>());
+      vec1.forEach(identities::add);
+      assertTrue(identities.containsAll(entities.subList(50, 100)));
+      assertFalse(vec1.contentEquals(vec2));
+      assertEquals(0, calls.sum());
+    }
+
+    @Test
+    public void customEquivalence() {
+      var vec = UnorderedVec.<String>withEquivalence(
+          Equivalence.of(String::equalsIgnoreCase, value -> value.toLowerCase().hashCode()));
+      vec.add("Hello");
+      vec.add("World");
+      var other = UnorderedVec.<String>withEquivalence(Equivalence.equality());
+      other.add("world");
+      other.add("HELLO");
+
+      assertTrue(vec.contentEquals(other));
+      assertFalse(other.contentEquals(vec));
+      assertTrue(vec.remove("WORLD"));
+      assertFalse(vec.remove("world"));
+      assertEquals(1, vec.size());
+    }
+
+    @Test
+    public void equalityEquivalence() {
+      var vec = UnorderedVec.<String>withEquivalence(Equivalence.equality());
+      vec.add("foo");
+
+      assertTrue(vec.remove(new String("foo")));
+      assertEquals(0, vec.size());
+    }
+
+    @Test
+    public void equivalenceDoesNotChangeEquals() {
+      var vec1 = UnorderedVec.<String>identity();
+      var vec2 = new UnorderedVec<String>();
+      vec1.add("foo");
+      vec2.add("foo");
+
+      assertEquals(vec1, vec2);
+      assertEquals(vec1.hashCode(), vec2.hashCode());
+    }
+
+    @Test
+    public void equivalencePreconditions() {
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> UnorderedVec.withEquivalence(null)),
+          () -> assertThrows(NullPointerException.class, () -> Equivalence.of(null, Object::hashCode)),
+          () -> assertThrows(NullPointerException.class, () -> Equivalence.of(Object::equals, null)),
+          () -> assertThrows(NullPointerException.class, () -> UnorderedVec.identity().remove(null))
+      );
+    }
+  }
+
+  @Nested
+  public class Q17 {
+    @Test
+    public void collectSequential() {
+      var vec = IntStream.range(0, 1_000).boxed().collect(UnorderedVec.toUnorderedVec());
+
+      assertEquals(1_000, vec.size());
+      var set = new HashSet<Integer>();
+      vec.forEach(set::add);
+      assertEquals(IntStream.range(0, 1_000).boxed().collect(toSet()), set);
+    }
+
+    @Test
+    public void collectParallel() {
+      var vec = IntStream.range(0, 1_000_000).parallel().boxed().collect(UnorderedVec.toUnorderedVec());
+
+      assertEquals(1_000_000, vec.size());
+      var seen = new boolean[1_000_000];
+      for (var value : vec) {
+        assertFalse(seen[value]);
+        seen[value] = true;
+      }
+    }
+
+    @Test
+    public void collectEmpty() {
+      var vec = IntStream.range(0, 0).parallel().boxed().collect(UnorderedVec.toUnorderedVec());
+
+      assertEquals(0, vec.size());
+      assertFalse(vec.iterator().hasNext());
+    }
+
+    @Test
+    public void collectedVecIsMutable() {
+      var vec = IntStream.range(0, 10_000).parallel().boxed().collect(UnorderedVec.toUnorderedVec());
+      var version = vec.version();
+      vec.add(10_000);
+      assertTrue(vec.remove(5_000));
+
+      assertEquals(10_000, vec.size());
+      assertEquals(version + 2, vec.version());
+    }
+
+    @Test
+    public void collectorCharacteristics() {
+      var characteristics = UnorderedVec.<String>toUnorderedVec().characteristics();
+
+      assertTrue(characteristics.contains(Collector.Characteristics.UNORDERED));
+      assertTrue(characteristics.contains(Collector.Characteristics.IDENTITY_FINISH));
+      assertFalse(characteristics.contains(Collector.Characteristics.CONCURRENT));
+    }
+
+    @Test
+    public void collectRejectsNull() {
+      assertThrows(NullPointerException.class, () -> Stream.of("a", null).collect(UnorderedVec.toUnorderedVec()));
+    }
+  }
+
+  @Nested
+  public class Q18 {
+    @Test
+    public void partition() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 100).forEach(vec::add);
+
+      var count = vec.partition(value -> value % 3 == 0);
+
+      assertEquals(34, count);
+      assertEquals(100, vec.size());
+      var matching = vec.slice(0, count);
+      assertEquals(34, matching.size());
+      assertTrue(matching.stream().allMatch(value -> value % 3 == 0));
+      assertTrue(vec.slice(count, 100).stream().noneMatch(value -> value % 3 == 0));
+    }
+
+    @Test
+    public void partitionTestsEachElementOnce() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 1_000).forEach(vec::add);
+      var calls = new LongAdder();
+
+      vec.partition(value -> {
+        calls.increment();
+        return value % 2 == 0;
+      });
+
+      assertEquals(1_000, calls.sum());
+    }
+
+    @Test
+    public void partitionEdgeCases() {
+      var empty = new UnorderedVec<String>();
+      assertEquals(0, empty.partition(__ -> true));
+      var vec = new UnorderedVec<String>();
+      vec.add("a");
+      vec.add("b");
+      assertEquals(2, vec.partition(__ -> true));
+      assertEquals(0, vec.partition(__ -> false));
+    }
+
+    @Test
+    public void partitionKeepsIndexesAndHashConsistent() {
+      var vec = new UnorderedVec<Integer>();
+      var byRemainder = vec.index(value -> value % 4);
+      IntStream.range(0, 40).forEach(vec::add);
+      var hash = vec.hashCode();
+
+      vec.partition(value -> value >= 20);
+
+      var copy = new UnorderedVec<Integer>();
+      vec.slice(0, vec.size()).forEach(copy::add);
+      assertEquals(copy, vec);
+      assertEquals(copy.hashCode(), vec.hashCode());
+      assertNotEquals(hash, vec.hashCode());
+      for (var remainder = 0; remainder < 4; remainder++) {
+        var finalRemainder = remainder;
+        var lookup = byRemainder.lookup(remainder);
+        assertEquals(10, lookup.size());
+        lookup.forEach(value -> assertEquals(finalRemainder, value % 4));
+      }
+      assertTrue(vec.remove(7));
+      assertEquals(9, byRemainder.count(3));
+    }
+
+    @Test
+    public void slice() {
+      var vec = new UnorderedVec<String>();
+      vec.add("a");
+      vec.add("b");
+      vec.add("c");
+
+      var slice = vec.slice(1, 3);
+      assertEquals(2, slice.size());
+      assertAll(
+          () -> assertThrows(UnsupportedOperationException.class, () -> slice.add("d")),
+          () -> assertThrows(UnsupportedOperationException.class, () -> slice.set(0, "d")),
+          () -> assertThrows(IndexOutOfBoundsException.class, () -> slice.get(2)),
+          () -> assertThrows(IndexOutOfBoundsException.class, () -> slice.get(-1)),
+          () -> assertThrows(IndexOutOfBoundsException.class, () -> vec.slice(2, 1)),
+          () -> assertThrows(IndexOutOfBoundsException.class, () -> vec.slice(0, 4))
+      );
+    }
+
+    @Test
+    public void selectTopK() {
+      var vec = new UnorderedVec<Integer>();
+      var random = new Random(0);
+      var values = random.ints(100_000, 0, 1_000_000).boxed().toList();
+      values.forEach(vec::add);
+
+      var top = vec.selectTopK(100, Comparator.naturalOrder());
+
+      var expected = values.stream().sorted(Comparator.reverseOrder()).limit(100).sorted().toList();
+      assertEquals(expected, top.stream().sorted().toList());
+      assertEquals(100_000, vec.size());
+    }
+
+    @Test
+    public void selectTopKWithDuplicates() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 10_000).forEach(i -> vec.add(i % 3));
+
+      var top = vec.selectTopK(5_000, Comparator.naturalOrder());
+
+      assertEquals(3_333, top.stream().filter(value -> value == 2).count());
+      assertEquals(1_667, top.stream().filter(value -> value == 1).count());
+    }
+
+    @Test
+    public void selectTopKWithComparator() {
+      var vec = new UnorderedVec<String>();
+      List.of("banana", "kiwi", "fig", "cherry", "apple").forEach(vec::add);
+
+      var shortest = vec.selectTopK(2, Comparator.comparingInt(String::length).reversed());
+
+      assertEquals(Set.of("kiwi", "fig"), Set.copyOf(shortest));
+    }
+
+    @Test
+    public void selectTopKEdgeCases() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 10).forEach(vec::add);
+
+      assertEquals(0, vec.selectTopK(0, Comparator.naturalOrder()).size());
+      assertEquals(10, vec.selectTopK(10, Comparator.naturalOrder()).size());
+      assertEquals(List.of(9), vec.selectTopK(1, Comparator.naturalOrder()));
+      assertAll(
+          () -> assertThrows(IndexOutOfBoundsException.class, () -> vec.selectTopK(11, Comparator.naturalOrder())),
+          () -> assertThrows(IndexOutOfBoundsException.class, () -> vec.selectTopK(-1, Comparator.naturalOrder())),
+          () -> assertThrows(NullPointerException.class, () -> vec.selectTopK(1, null))
+      );
+    }
+
+    @Test
+    public void minMax() {
+      var vec = new UnorderedVec<Integer>();
+      assertTrue(vec.min(Comparator.naturalOrder()).isEmpty());
+      assertTrue(vec.max(Comparator.naturalOrder()).isEmpty());
+      IntStream.range(0, 1_000).map(i -> (i * 7_919) % 1_000).forEach(vec::add);
+
+      assertEquals(0, vec.min(Comparator.naturalOrder()).orElseThrow());
+      assertEquals(999, vec.max(Comparator.naturalOrder()).orElseThrow());
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> vec.min(null)),
+          () -> assertThrows(NullPointerException.class, () -> vec.max(null))
+      );
+    }
+  }
+
+  @Nested
+  public class Q19 {
+    private static HashMap<Integer, Integer> counts(Iterable<Integer> iterable) {
+      var counts = new HashMap<Integer, Integer>();
+      iterable.forEach(value -> counts.merge(value, 1, Integer::sum));
+      return counts;
+    }
+
+    private static HashMap<Integer, Integer> expected(HashMap<Integer, Integer> counts1, HashMap<Integer, Integer> counts2,
+                                                      UnorderedVec.Multiplicity multiplicity, IntBinaryOperator operator) {
+      var keys = new HashSet<>(counts1.keySet());
+      keys.addAll(counts2.keySet());
+      var expected = new HashMap<Integer, Integer>();
+      for (var key : keys) {
+        var a = counts1.getOrDefault(key, 0);
+        var b = counts2.getOrDefault(key, 0);
+        if (multiplicity == UnorderedVec.Multiplicity.SET) {
+          a = Math.min(a, 1);
+          b = Math.min(b, 1);
+        }
+        var count = operator.applyAsInt(a, b);
+        if (count != 0) {
+          expected.put(key, count);
+        }
+      }
+      return expected;
+    }
+
+    private static UnorderedVec<Integer> randomVec(Random random, int size, int bound) {
+      var vec = new UnorderedVec<Integer>();
+      random.ints(size, 0, bound).forEach(vec::add);
+      return vec;
+    }
+
+    @Test
+    public void againstModel() {
+      var random = new Random(0);
+      for (var round = 0; round < 50; round++) {
+        var vec1 = randomVec(random, random.nextInt(200), 40);
+        var vec2 = randomVec(random, random.nextInt(200), 40);
+        var counts1 = counts(vec1);
+        var counts2 = counts(vec2);
+        for (var multiplicity : UnorderedVec.Multiplicity.values()) {
+          assertEquals(expected(counts1, counts2, multiplicity, Math::min), counts(vec1.intersect(vec2, multiplicity)));
+          assertEquals(expected(counts1, counts2, multiplicity, Math::max), counts(vec1.union(vec2, multiplicity)));
+          assertEquals(expected(counts1, counts2, multiplicity, (a, b) -> Math.max(a - b, 0)), counts(vec1.difference(vec2, multiplicity)));
+          assertEquals(expected(counts1, counts2, multiplicity, (a, b) -> Math.abs(a - b)), counts(vec1.symmetricDifference(vec2, multiplicity)));
+        }
+        assertEquals(counts1, counts(vec1));
+        assertEquals(counts2, counts(vec2));
+      }
+    }
+
+    @Test
+    public void inPlaceAgainstModel() {
+      var random = new Random(1);
+      for (var round = 0; round < 50; round++) {
+        var other = randomVec(random, random.nextInt(200), 40);
+        for (var multiplicity : UnorderedVec.Multiplicity.values()) {
+          var vec = randomVec(random, random.nextInt(200), 40);
+          var counts = counts(vec);
+          vec.intersectInPlace(other, multiplicity);
+          assertEquals(expected(counts, counts(other), multiplicity, Math::min), counts(vec));
+
+          vec = randomVec(random, random.nextInt(200), 40);
+          counts = counts(vec);
+          vec.unionInPlace(other, multiplicity);
+          assertEquals(expected(counts, counts(other), multiplicity, Math::max), counts(vec));
+
+          vec = randomVec(random, random.nextInt(200), 40);
+          counts = counts(vec);
+          vec.differenceInPlace(other, multiplicity);
+          assertEquals(expected(counts, counts(other), multiplicity, (a, b) -> Math.max(a - b, 0)), counts(vec));
+
+          vec = randomVec(random, random.nextInt(200), 40);
+          counts = counts(vec);
+          vec.symmetricDifferenceInPlace(other, multiplicity);
+          assertEquals(expected(counts, counts(other), multiplicity, (a, b) -> Math.abs(a - b)), counts(vec));
+        }
+      }
+    }
+
+    @Test
+    public void inPlaceReportsChanges() {
+      var vec = new UnorderedVec<String>();
+      vec.add("a");
+      vec.add("b");
+      var other = new UnorderedVec<String>();
+      other.add("a");
+      other.add("b");
+      other.add("c");
+
+      assertFalse(vec.intersectInPlace(other, UnorderedVec.Multiplicity.MULTISET));
+      assertFalse(vec.differenceInPlace(new UnorderedVec<>(), UnorderedVec.Multiplicity.MULTISET));
+      assertTrue(vec.unionInPlace(other, UnorderedVec.Multiplicity.SET));
+      assertEquals(3, vec.size());
+      assertTrue(vec.differenceInPlace(other, UnorderedVec.Multiplicity.SET));
+      assertEquals(0, vec.size());
+    }
+
+    @Test
+    public void withItself() {
+      var vec = new UnorderedVec<Integer>();
+      List.of(1, 1, 2).forEach(vec::add);
+
+      assertEquals(Map.of(1, 2, 2, 1), counts(vec.intersect(vec, UnorderedVec.Multiplicity.MULTISET)));
+      assertEquals(Map.of(1, 1, 2, 1), counts(vec.union(vec, UnorderedVec.Multiplicity.SET)));
+      assertTrue(vec.symmetricDifferenceInPlace(vec, UnorderedVec.Multiplicity.MULTISET));
+      assertEquals(0, vec.size());
+    }
+
+    @Test
+    public void keepsIndexesInSync() {
+      var vec = new UnorderedVec<Integer>();
+      var byParity = vec.index(value -> value % 2);
+      IntStream.range(0, 100).forEach(vec::add);
+      var other = new UnorderedVec<Integer>();
+      IntStream.range(50, 150).forEach(other::add);
+
+      vec.symmetricDifferenceInPlace(other, UnorderedVec.Multiplicity.SET);
+
+      assertEquals(100, vec.size());
+      assertEquals(50, byParity.count(0));
+      assertEquals(50, byParity.count(1));
+    }
+
+    @Test
+    public void usesTheEquivalenceOfTheReceiver() {
+      var vec = UnorderedVec.<String>withEquivalence(
+          Equivalence.of(String::equalsIgnoreCase, value -> value.toLowerCase().hashCode()));
+      vec.add("Hello");
+      vec.add("World");
+      var other = new UnorderedVec<String>();
+      other.add("HELLO");
+
+      assertEquals(List.of("World"), vec.difference(other, UnorderedVec.Multiplicity.SET).slice(0, 1));
+      assertEquals(2, vec.union(other, UnorderedVec.Multiplicity.MULTISET).size());
+    }
+
+    @Test
+    public void setAlgebraPreconditions() {
+      var vec = new UnorderedVec<Integer>();
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> vec.intersect(null, UnorderedVec.Multiplicity.SET)),
+          () -> assertThrows(NullPointerException.class, () -> vec.union(vec, null)),
+          () -> assertThrows(NullPointerException.class, () -> vec.differenceInPlace(null, UnorderedVec.Multiplicity.SET)),
+          () -> assertThrows(NullPointerException.class, () -> vec.symmetricDifferenceInPlace(vec, null))
+      );
+    }
+  }
+
+  @Nested
+  public class Q20 {
+    @Test
+    public void contains() {
+      var vec = new UnorderedVec<String>();
+      vec.add("foo");
+
+      assertTrue(vec.contains("foo"));
+      assertFalse(vec.contains("bar"));
+      assertThrows(NullPointerException.class, () -> vec.contains(null));
+    }
+
+    @Test
+    public void filterNeverHidesAnElement() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 100).forEach(vec::add);
+      vec.enableMembershipFilter(10, 0.01);
+      IntStream.range(100, 10_000).forEach(vec::add);
+      IntStream.range(0, 5_000).forEach(i -> assertTrue(vec.remove(2 * i)));
+      vec.partition(value -> value > 5_000);
+      vec.batch().add(-1).remove(1).apply();
+
+      for (var i = 0; i < 10_000; i++) {
+        assertEquals(i % 2 == 1 && i != 1, vec.contains(i), "" + i);
+      }
+      assertTrue(vec.contains(-1));
+    }
+
+    @Test
+    public void filteredMissesSkipTheScan() {
+      var vec = new UnorderedVec<Integer>();
+      vec.enableMembershipFilter(1_000, 0.01);
+      IntStream.range(0, 1_000).forEach(vec::add);
+
+      for (var i = 1_000; i < 101_000; i++) {
+        assertFalse(vec.contains(i));
+        assertFalse(vec.remove(i));
+      }
+
+      var stats = vec.membershipStats();
+      assertEquals(200_000, stats.lookups());
+      assertEquals(200_000, stats.filteredMisses() + stats.falsePositives());
+      assertEquals(0.01, stats.expectedFalsePositiveRate());
+      assertTrue(stats.observedFalsePositiveRate() < 0.03, "" + stats.observedFalsePositiveRate());
+    }
+
+    @Test
+    public void filterGrowsWithTheVec() {
+      var vec = new UnorderedVec<Integer>();
+      vec.enableMembershipFilter(0, 0.01);
+      IntStream.range(0, 100_000).forEach(vec::add);
+
+      IntStream.range(100_000, 200_000).forEach(i -> assertFalse(vec.contains(i)));
+      assertTrue(vec.membershipStats().observedFalsePositiveRate() < 0.03);
+      assertEquals(200_000 - 100_000, vec.membershipStats().lookups());
+    }
+
+    @Test
+    public void filterFollowsTheEquivalence() {
+      var vec = UnorderedVec.<String>withEquivalence(
+          Equivalence.of(String::equalsIgnoreCase, value -> value.toLowerCase().hashCode()));
+      vec.enableMembershipFilter(16, 0.01);
+      vec.add("Hello");
+
+      assertTrue(vec.contains("HELLO"));
+      assertTrue(vec.remove("hello"));
+      assertFalse(vec.contains("Hello"));
+    }
+
+    @Test
+    public void collectIntoAFilteredVec() {
+      var vec = new UnorderedVec<Integer>();
+      vec.enableMembershipFilter(16, 0.01);
+      vec.unionInPlace(IntStream.range(0, 1_000).boxed().collect(UnorderedVec.toUnorderedVec()), UnorderedVec.Multiplicity.MULTISET);
+
+      IntStream.range(0, 1_000).forEach(i -> assertTrue(vec.contains(i)));
+    }
+
+    @Test
+    public void disableMembershipFilter() {
+      var vec = new UnorderedVec<Integer>();
+      vec.enableMembershipFilter(16, 0.01);
+      vec.add(1);
+      vec.disableMembershipFilter();
+
+      assertTrue(vec.contains(1));
+      assertThrows(IllegalStateException.class, vec::membershipStats);
+    }
+
+    @Test
+    public void membershipFilterPreconditions() {
+      var vec = new UnorderedVec<Integer>();
+      assertAll(
+          () -> assertThrows(IllegalStateException.class, vec::membershipStats),
+          () -> assertThrows(IllegalArgumentException.class, () -> vec.enableMembershipFilter(-1, 0.01)),
+          () -> assertThrows(IllegalArgumentException.class, () -> vec.enableMembershipFilter(16, 0)),
+          () -> assertThrows(IllegalArgumentException.class, () -> vec.enableMembershipFilter(16, 1)),
+          () -> assertThrows(IllegalArgumentException.class, () -> vec.enableMembershipFilter(16, Double.NaN))
+      );
+    }
+  }
+
+  @Nested
+  public class Q21 {
+    @Test
+    public void filterAndMap() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 100).forEach(vec::add);
+
+      var view = vec.view().filter(value -> value % 10 == 0).map(value -> "v" + value);
+
+      var set = new HashSet<String>();
+      view.forEach(set::add);
+      assertEquals(IntStream.range(0, 10).mapToObj(i -> "v" + i * 10).collect(toSet()), set);
+      assertEquals(10, view.count());
+      assertEquals(100, view.estimateSize());
+    }
+
+    @Test
+    public void viewsAreLazy() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 100).forEach(vec::add);
+      var calls = new LongAdder();
+
+      var view = vec.view().map(value -> {
+        calls.increment();
+        return value * 2;
+      }).filter(value -> value > 150);
+      assertEquals(0, calls.sum());
+
+      var iterator = view.iterator();
+      assertEquals(152, iterator.next());
+      assertTrue(calls.sum() < 100);
+    }
+
+    @Test
+    public void viewsAreLive() {
+      var vec = new UnorderedVec<String>();
+      var view = vec.view().map(String::length);
+      vec.add("foo");
+      vec.add("quux");
+
+      assertEquals(Set.of(3, 4), view.stream().collect(toSet()));
+      assertEquals(2, view.count());
+    }
+
+    @Test
+    public void iterator() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 10).forEach(vec::add);
+
+      var iterator = vec.view().filter(value -> value >= 8).iterator();
+      var set = new HashSet<Integer>();
+      set.add(iterator.next());
+      set.add(iterator.next());
+      assertFalse(iterator.hasNext());
+      assertThrows(NoSuchElementException.class, iterator::next);
+      assertThrows(UnsupportedOperationException.class, iterator::remove);
+      assertEquals(Set.of(8, 9), set);
+    }
+
+    @Test
+    public void spliteratorCharacteristics() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 10).forEach(vec::add);
+
+      var mapped = vec.view().map(value -> value + 1).spliterator();
+      assertTrue(mapped.hasCharacteristics(Spliterator.SIZED));
+      assertEquals(10, mapped.getExactSizeIfKnown());
+      var filtered = vec.view().filter(value -> value > 5).map(value -> value + 1).spliterator();
+      assertFalse(filtered.hasCharacteristics(Spliterator.SIZED));
+      assertEquals(10, filtered.estimateSize());
+      assertTrue(filtered.hasCharacteristics(Spliterator.NONNULL));
+    }
+
+    @Test
+    public void spliteratorSplits() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 100_000).forEach(vec::add);
+
+      var spliterator = vec.view().spliterator();
+      var prefix = spliterator.trySplit();
+      assertNotNull(prefix);
+      assertEquals(100_000, prefix.estimateSize() + spliterator.estimateSize());
+      assertNull(vec.view().filter(value -> value < 10).toUnorderedVec().view().spliterator().trySplit());
+    }
+
+    @Test
+    public void parallelStream() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 1_000_000).forEach(vec::add);
+
+      var sum = vec.view().filter(value -> value % 2 == 0).map(Integer::longValue).parallelStream().mapToLong(Long::longValue).sum();
+
+      assertEquals(249_999_500_000L, sum);
+      assertEquals(1_000_000, vec.view().parallelStream().count());
+    }
+
+    @Test
+    public void toUnorderedVec() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 100).forEach(vec::add);
+
+      var result = vec.view().filter(value -> value < 50).map(value -> value * 2).toUnorderedVec();
+
+      assertEquals(50, result.size());
+      assertEquals(IntStream.range(0, 50).map(i -> i * 2).boxed().collect(toSet()), result.view().stream().collect(toSet()));
+      assertEquals(100, vec.size());
+    }
+
+    @Test
+    public void viewPreconditions() {
+      var vec = new UnorderedVec<Integer>();
+      vec.add(1);
+      assertAll(
+          () -> assertThrows(NullPointerException.class, () -> vec.view().filter(null)),
+          () -> assertThrows(NullPointerException.class, () -> vec.view().map(null)),
+          () -> assertThrows(NullPointerException.class, () -> vec.view().forEach(null)),
+          () -> assertThrows(NullPointerException.class, () -> vec.view().map(__ -> null).toUnorderedVec())
+      );
+    }
+  }
+
+  @Nested
+  public class Q22 {
+    @Test
+    public void splitInto() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 10).forEach(vec::add);
+
+      var parts = vec.splitInto(3);
+
+      assertEquals(3, parts.size());
+      assertEquals(List.of(3, 3, 4), parts.stream().map(List::size).toList());
+      assertEquals(IntStream.range(0, 10).boxed().collect(toSet()), parts.stream().flatMap(List::stream).collect(toSet()));
+      assertThrows(UnsupportedOperationException.class, () -> parts.get(0).add(42));
+    }
+
+    @Test
+    public void splitIntoMorePartsThanElements() {
+      var vec = new UnorderedVec<String>();
+      vec.add("a");
+      vec.add("b");
+
+      var parts = vec.splitInto(4);
+
+      assertEquals(4, parts.size());
+      assertEquals(2, parts.stream().mapToInt(List::size).sum());
+      assertEquals(4, new UnorderedVec<String>().splitInto(4).size());
+    }
+
+    @Test
+    public void absorbStealsTheArrayWhenEmpty() {
+      var vec = new UnorderedVec<Integer>();
+      var other = new UnorderedVec<Integer>();
+      IntStream.range(0, 100).forEach(other::add);
+      var otherCapacity = other.memoryFootprint().capacity();
+
+      vec.absorb(other);
+
+      assertEquals(100, vec.size());
+      assertEquals(otherCapacity, vec.memoryFootprint().capacity());
+      assertEquals(0, other.size());
+      assertEquals(0, other.memoryFootprint().capacity());
+      assertFalse(other.iterator().hasNext());
+      other.add(1);
+      assertEquals(1, other.size());
+      assertEquals(100, vec.size());
+    }
+
+    @Test
+    public void absorbAppends() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 10).forEach(vec::add);
+      var other = new UnorderedVec<Integer>();
+      IntStream.range(10, 25).forEach(other::add);
+      var hash = vec.hashCode();
+
+      vec.absorb(other);
+
+      assertEquals(25, vec.size());
+      assertEquals(IntStream.range(0, 25).boxed().collect(toSet()), vec.view().stream().collect(toSet()));
+      assertNotEquals(hash, vec.hashCode());
+      assertEquals(0, other.size());
+    }
+
+    @Test
+    public void absorbKeepsHooksInSync() {
+      var vec = new UnorderedVec<Integer>();
+      var byParity = vec.index(value -> value % 2);
+      var other = new UnorderedVec<Integer>();
+      var otherByParity = other.index(value -> value % 2);
+      other.trackChanges(100);
+      var version = other.version();
+      IntStream.range(0, 10).forEach(other::add);
+      var changesVersion = other.version();
+
+      vec.absorb(other);
+
+      assertEquals(5, byParity.count(0));
+      assertEquals(5, byParity.count(1));
+      assertEquals(0, otherByParity.count(0));
+      assertEquals(0, other.size());
+      assertEquals(10, other.changesSince(changesVersion).removed().size());
+      assertTrue(other.changesSince(version).added().isEmpty());
+    }
+
+    @Test
+    public void scatterGather() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 100_000).forEach(vec::add);
+
+      var results = vec.splitInto(8).parallelStream()
+          .map(part -> {
+            var result = new UnorderedVec<Integer>();
+            part.forEach(value -> result.add(value * 2));
+            return result;
+          })
+          .toList();
+      var merged = new UnorderedVec<Integer>();
+      results.forEach(merged::absorb);
+
+      assertEquals(100_000, merged.size());
+      assertEquals(2L * 4_999_950_000L, merged.view().stream().mapToLong(Integer::longValue).sum());
+      results.forEach(result -> assertEquals(0, result.size()));
+    }
+
+    @Test
+    public void splitAndAbsorbPreconditions() {
+      var vec = new UnorderedVec<Integer>();
+      assertAll(
+          () -> assertThrows(IllegalArgumentException.class, () -> vec.splitInto(0)),
+          () -> assertThrows(NullPointerException.class, () -> vec.absorb(null)),
+          () -> assertThrows(IllegalArgumentException.class, () -> vec.absorb(vec))
+      );
+    }
+  }
+
+  @Nested
+  public class Q23 {
+    static final class Recorder<E> implements Flow.Subscriber<List<E>> {
+      final List<List<E>> batches = new CopyOnWriteArrayList<>();
+      final CompletableFuture<Void> completion = new CompletableFuture<>();
+      volatile Flow.Subscription subscription;
+
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+      }
+
+      @Override
+      public void onNext(List<E> batch) {
+        batches.add(List.copyOf(batch));
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        completion.completeExceptionally(throwable);
+      }
+
+      @Override
+      public void onComplete() {
+        completion.complete(null);
+      }
+
+      List<E> elements() {
+        return batches.stream().flatMap(List::stream).toList();
+      }
+    }
+
+    @Test
+    public void publishInBatches() throws Exception {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 1_000).forEach(vec::add);
+      var recorder = new Recorder<Integer>();
+
+      vec.publisher(64, ForkJoinPool.commonPool()).subscribe(recorder);
+      recorder.subscription.request(Long.MAX_VALUE);
+
+      recorder.completion.get(5, TimeUnit.SECONDS);
+      assertEquals(16, recorder.batches.size());
+      assertTrue(recorder.batches.stream().limit(15).allMatch(batch -> batch.size() == 64));
+      assertEquals(IntStream.range(0, 1_000).boxed().collect(toSet()), Set.copyOf(recorder.elements()));
+    }
+
+    @Test
+    public void honorsDemand() throws Exception {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 100).forEach(vec::add);
+      var recorder = new Recorder<Integer>();
+      Executor direct = Runnable::run;
+
+      vec.publisher(10, direct).subscribe(recorder);
+      assertEquals(0, recorder.batches.size());
+      recorder.subscription.request(3);
+      assertEquals(3, recorder.batches.size());
+      recorder.subscription.request(2);
+      assertEquals(5, recorder.batches.size());
+      assertFalse(recorder.completion.isDone());
+      recorder.subscription.request(5);
+
+      assertTrue(recorder.completion.isDone());
+      assertEquals(100, recorder.elements().size());
+    }
+
+    @Test
+    public void snapshotIgnoresLaterMutations() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 100).forEach(vec::add);
+      var recorder = new Recorder<Integer>();
+      Executor direct = Runnable::run;
+      vec.publisher(10, direct).subscribe(recorder);
+      recorder.subscription.request(2);
+
+      IntStream.range(0, 50).forEach(vec::remove);
+      vec.partition(value -> value % 2 == 0);
+      IntStream.range(100, 150).forEach(vec::add);
+      recorder.subscription.request(Long.MAX_VALUE);
+
+      assertTrue(recorder.completion.isDone());
+      assertEquals(IntStream.range(0, 100).boxed().collect(toSet()), Set.copyOf(recorder.elements()));
+      assertEquals(100, recorder.elements().size());
+      assertEquals(IntStream.range(50, 150).boxed().collect(toSet()), vec.view().stream().collect(toSet()));
+    }
+
+    @Test
+    public void snapshotSurvivesConcurrentSwapRemoves() throws Exception {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 100_000).forEach(vec::add);
+      var recorders = new ArrayList<Recorder<Integer>>();
+      for (var i = 0; i < 4; i++) {
+        var recorder = new Recorder<Integer>();
+        vec.publisher(1_000, ForkJoinPool.commonPool()).subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        recorders.add(recorder);
+      }
+
+      for (var i = 0; i < 100_000; i += 2) {
+        assertTrue(vec.remove(i));
+      }
+
+      for (var recorder : recorders) {
+        recorder.completion.get(5, TimeUnit.SECONDS);
+        var elements = recorder.elements();
+        assertEquals(100_000, elements.size());
+        assertEquals(100_000, Set.copyOf(elements).size());
+      }
+      assertEquals(50_000, vec.size());
+    }
+
+    @Test
+    public void emptyVecCompletesImmediately() {
+      var recorder = new Recorder<String>();
+      new UnorderedVec<String>().publisher(10, Runnable::run).subscribe(recorder);
+
+      assertTrue(recorder.completion.isDone());
+      assertTrue(recorder.batches.isEmpty());
+    }
+
+    @Test
+    public void cancel() {
+      var vec = new UnorderedVec<Integer>();
+      IntStream.range(0, 100).forEach(vec::add);
+      var recorder = new Recorder<Integer>();
+      vec.publisher(10, Runnable::run).subscribe(recorder);
+      recorder.subscription.request(1);
+      recorder.subscription.cancel();
+      recorder.subscription.request(5);
+
+      assertEquals(1, recorder.batches.size());
+      assertFalse(recorder.completion.isDone());
+    }
+
+    @Test
+    public void nonPositiveRequestIsAnError() {
+      var vec = new UnorderedVec<Integer>();
+      vec.add(1);
+      var recorder = new Recorder<Integer>();
+      vec.publisher(10, Runnable::run).subscribe(recorder);
+      recorder.subscription.request(0);
+
+      assertTrue(recorder.completion.isCompletedExceptionally());
+      assertTrue(recorder.batches.isEmpty());
+    }
+
+    @Test
+    public void batchesAreReadOnly() {
+      var vec = new UnorderedVec<Integer>();
+      vec.add(1);
+      var batches = new ArrayList<List<Integer>>();
+      vec.publisher(10, Runnable::run).subscribe(new Flow.Subscriber<>() {
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+          subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<Integer> batch) {
+          batches.add(batch);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          throw new AssertionError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+      });
+
+      assertEquals(1, batches.size());
+      assertThrows(UnsupportedOperationException.class, () -> batches.get(0).set(0, 2));
+    }
+
+    @Test
+    public void publisherPreconditions() {
+      var vec = new UnorderedVec<Integer>();
+      assertAll(
+          () -> assertThrows(IllegalArgumentException.class, () -> vec.publisher(0, Runnable::run)),
+          () -> assertThrows(NullPointerException.class, () -> vec.publisher(10, null)),
+          () -> assertThrows(NullPointerException.class, () -> vec.publisher(10, Runnable::run).subscribe(null))
+      );
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package unorderedvec;
+
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+public final class WorkStealingBag<E> {
+    private static final class Segment<E> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final UnorderedVec<E> vec = new UnorderedVec<>();
+        private final UnorderedVec<E>.Cursor cursor = vec.cursor();
+    }
+
+    private final Segment<E>[] segments;
+    private final int mask;
+    private final Semaphore available = new Semaphore(0);
+
+    @SuppressWarnings("unchecked")
+    public WorkStealingBag(){
+        var count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+        segments = (Segment<E>[]) new Segment<?>[count];
+        for(var i = 0; i < count; i++){
+            segments[i] = new Segment<>();
+        }
+        mask = count - 1;
+    }
+
+    public void add(E element){
+        Objects.requireNonNull(element);
+        var segment = segments[ShardedUnorderedVec.threadHash() & mask];
+        segment.lock.lock();
+        try {
+            segment.vec.add(element);
+        } finally {
+            segment.lock.unlock();
+        }
+        available.release();
+    }
+
+    public E poll(){
+        if(!available.tryAcquire()){
+            return null;
+        }
+        return removeAny();
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        if(!available.tryAcquire(timeout, unit)){
+            return null;
+        }
+        return removeAny();
+    }
+
+    public E take() throws InterruptedException {
+        available.acquire();
+        return removeAny();
+    }
+
+    public int size(){
+        return available.availablePermits();
+    }
+
+    // a permit guarantees that one element is owned by the caller, the local segment is tried first then the others
+    private E removeAny(){
+        var local = ShardedUnorderedVec.threadHash();
+        for(var i = 0;; i++){
+            var segment = segments[(local + i) & mask];
+            segment.lock.lock();
+            try {
+                var cursor = segment.cursor;
+                cursor.reset();
+                if(cursor.advance()){
+                    var element = cursor.current();
+                    cursor.removeCurrent();
+                    return element;
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package unorderedvec;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class WorkStealingBagTest {
+  // the workers run as futures joined by the test thread, so an assertion failing in a worker fails the test
+  private static void joinAll(List<? extends CompletableFuture<?>> futures) {
+    for (var future : futures) {
+      try {
+        future.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof Error error) {
+          throw error;
+        }
+        if (e.getCause() instanceof RuntimeException runtimeException) {
+          throw runtimeException;
+        }
+        throw e;
+      }
+    }
+  }
+
+  @Test
+  public void addAndPoll() {
+    var bag = new WorkStealingBag<String>();
+    bag.add("A");
+    bag.add("B");
+    assertEquals(2, bag.size());
+
+    var set = new HashSet<String>();
+    set.add(bag.poll());
+    set.add(bag.poll());
+    assertEquals(Set.of("A", "B"), set);
+    assertNull(bag.poll());
+    assertEquals(0, bag.size());
+  }
+
+  @Test
+  public void pollWithTimeout() throws InterruptedException {
+    var bag = new WorkStealingBag<String>();
+    assertNull(bag.poll(10, TimeUnit.MILLISECONDS));
+    bag.add("A");
+    assertEquals("A", bag.poll(10, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void takeWaitsForAnElement() {
+    assertTimeoutPreemptively(Duration.ofMillis(5_000), () -> {
+      var bag = new WorkStealingBag<String>();
+      try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        var consumer = CompletableFuture.supplyAsync(() -> {
+          try {
+            return bag.take();
+          } catch (InterruptedException e) {
+            throw new AssertionError(e);
+          }
+        }, executor);
+        Thread.sleep(50);
+        assertFalse(consumer.isDone());
+        bag.add("A");
+        assertEquals("A", consumer.join());
+      }
+    });
+  }
+
+  @Test
+  public void takeIsInterruptible() {
+    assertTimeoutPreemptively(Duration.ofMillis(5_000), () -> {
+      var bag = new WorkStealingBag<String>();
+      var interrupted = new boolean[1];
+      var consumer = Thread.ofVirtual().start(() -> {
+        try {
+          bag.take();
+        } catch (InterruptedException e) {
+          interrupted[0] = true;
+        }
+      });
+      Thread.sleep(50);
+      consumer.interrupt();
+      consumer.join();
+      assertTrue(interrupted[0]);
+    });
+  }
+
+  @Test
+  public void stealFromOtherThreads() throws InterruptedException {
+    var bag = new WorkStealingBag<Integer>();
+    var producer = Thread.ofPlatform().start(() -> IntStream.range(0, 1_000).forEach(bag::add));
+    producer.join();
+
+    var set = new HashSet<Integer>();
+    Integer value;
+    while ((value = bag.poll()) != null) {
+      set.add(value);
+    }
+    assertEquals(IntStream.range(0, 1_000).boxed().collect(Collectors.toSet()), set);
+  }
+
+  @Test
+  public void producersAndConsumers() {
+    assertTimeoutPreemptively(Duration.ofMillis(10_000), () -> {
+      var bag = new WorkStealingBag<Integer>();
+      var seen = ConcurrentHashMap.<Integer>newKeySet();
+      var futures = new ArrayList<CompletableFuture<Void>>();
+      try (var producers = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().factory());
+           var consumers = Executors.newVirtualThreadPerTaskExecutor()) {
+        for (var t = 0; t < 4; t++) {
+          var base = t * 10_000;
+          futures.add(CompletableFuture.runAsync(() -> IntStream.range(base, base + 10_000).forEach(bag::add), producers));
+          futures.add(CompletableFuture.runAsync(() -> {
+            try {
+              for (var i = 0; i < 10_000; i++) {
+                var value = bag.take();
+                assertTrue(seen.add(value), "duplicate " + value);
+              }
+            } catch (InterruptedException e) {
+              throw new AssertionError(e);
+            }
+          }, consumers));
+        }
+        joinAll(futures);
+      }
+
+      assertEquals(40_000, seen.size());
+      assertEquals(0, bag.size());
+    });
+  }
+
+  @Test
+  public void addPrecondition() {
+    var bag = new WorkStealingBag<String>();
+    assertThrows(NullPointerException.class, () -> bag.add(null));
+  }
+}